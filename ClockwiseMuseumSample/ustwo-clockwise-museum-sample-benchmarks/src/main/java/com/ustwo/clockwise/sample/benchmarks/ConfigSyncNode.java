@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import com.ustwo.clockwise.sample.common.util.ConfigSyncProtocol;
+import com.ustwo.clockwise.sample.common.util.ConfigVersionTracker;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One side of the config sync held in memory, for driving the sync over a {@link SyncTransport} off-device.
+ * <p/>
+ * Local changes are recorded as the config sync batcher does and put on the local path by {@link #flush()}. Data
+ * items on the peer path are applied and acknowledged as the config listener services do. Both go through
+ * {@link ConfigSyncProtocol}, so the conflict resolution is the same as on a device.
+ */
+public class ConfigSyncNode implements SyncTransport.Listener {
+
+    /**
+     * Called on the transport's thread with the remote values that were accepted.
+     */
+    public interface OnConfigChangedListener {
+        void onConfigChanged(ConfigSyncNode node, Map<String, Object> changes);
+    }
+
+    private final SyncTransport mTransport;
+    private final String mLocalPath;
+    private final String mPeerPath;
+    private final ConfigVersionTracker mTracker;
+    private final Map<String, Object> mValues = new HashMap<>();
+    private OnConfigChangedListener mListener;
+
+    private final ConfigSyncProtocol.ValueSource mValueSource = new ConfigSyncProtocol.ValueSource() {
+        @Override
+        public Object get(String key) {
+            return mValues.get(key);
+        }
+    };
+
+    /**
+     * @param transport   transport to put and receive config data items on
+     * @param localOrigin origin name of this side, e.g. {@code "companion"}
+     * @param localPath   path this side puts its changes on
+     * @param peerPath    path the peer puts its changes on
+     */
+    public ConfigSyncNode(SyncTransport transport, String localOrigin, String localPath, String peerPath) {
+        mTransport = transport;
+        mLocalPath = localPath;
+        mPeerPath = peerPath;
+        mTracker = new ConfigVersionTracker(localOrigin);
+        mTransport.addListener(this);
+    }
+
+    public void setOnConfigChangedListener(OnConfigChangedListener listener) {
+        mListener = listener;
+    }
+
+    public String getOrigin() {
+        return mTracker.getLocalOrigin();
+    }
+
+    /**
+     * Change a value locally. The change is sent on the next {@link #flush()}.
+     */
+    public synchronized void set(String key, Object value) {
+        mValues.put(key, value);
+        mTracker.recordLocalChange(key);
+    }
+
+    public synchronized Object get(String key) {
+        return mValues.get(key);
+    }
+
+    public synchronized Map<String, Object> getAll() {
+        return new HashMap<>(mValues);
+    }
+
+    /**
+     * Put all changes the peer has not acknowledged.
+     *
+     * @return true if there was anything to put.
+     */
+    public boolean flush() {
+        Map<String, Object> payload;
+        synchronized (this) {
+            payload = ConfigSyncProtocol.writeLocalChanges(mTracker, mValueSource);
+        }
+
+        if (payload == null) {
+            return false;
+        }
+
+        mTransport.putData(mLocalPath, payload, null);
+        return true;
+    }
+
+    /**
+     * Stop receiving from the transport.
+     */
+    public void close() {
+        mTransport.removeListener(this);
+    }
+
+    @Override
+    public void onDataChanged(String sourceNodeId, String path, Map<String, Object> data) {
+        if (!mPeerPath.equals(path)) {
+            return;
+        }
+
+        Map<String, Object> accepted;
+        Map<String, Object> acknowledgement = null;
+        synchronized (this) {
+            accepted = ConfigSyncProtocol.applyRemoteChanges(mTracker, data);
+            mValues.putAll(accepted);
+
+            if (ConfigSyncProtocol.needsAcknowledgement(data)) {
+                acknowledgement = ConfigSyncProtocol.writeAcknowledgement(mTracker, mValueSource);
+            }
+        }
+
+        if (acknowledgement != null) {
+            mTransport.putData(mLocalPath, acknowledgement, null);
+        }
+
+        OnConfigChangedListener listener = mListener;
+        if (!accepted.isEmpty() && listener != null) {
+            listener.onConfigChanged(this, accepted);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(String sourceNodeId, String path, byte[] payload) {
+        // Config is only synced through data items.
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncProtocol;
+import com.ustwo.clockwise.sample.common.util.DataMapUtil;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and reading the DataMaps put on the data layer by the config sync.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataMapUtilBenchmark {
+
+    @Param({"int", "long", "string", "boolean"})
+    public String mType;
+
+    private Object mValue;
+    private DataMap mDataMap;
+    private Map<String, Object> mPayload;
+    private DataMap mPayloadDataMap;
+
+    @Setup
+    public void setUp() {
+        switch (mType) {
+            case "int":
+                mValue = 42;
+                break;
+            case "long":
+                mValue = 42L;
+                break;
+            case "string":
+                mValue = "value";
+                break;
+            default:
+                mValue = Boolean.TRUE;
+                break;
+        }
+        mDataMap = new DataMap();
+
+        // A config sync payload with two changed keys, as put by the companion config activity.
+        Map<String, Object> prefs = new LinkedHashMap<>();
+        Map<String, Object> versions = new LinkedHashMap<>();
+        prefs.put("key_1", mValue);
+        prefs.put("key_2", mValue);
+        versions.put("key_1", 17L);
+        versions.put("key_2", 18L);
+
+        mPayload = new LinkedHashMap<>();
+        mPayload.put(ConfigSyncProtocol.KEY_PREFS, prefs);
+        mPayload.put(ConfigSyncProtocol.KEY_VERSIONS, versions);
+        mPayload.put(ConfigSyncProtocol.KEY_ORIGIN, "companion");
+        mPayload.put(ConfigSyncProtocol.KEY_ACK, 12L);
+
+        mPayloadDataMap = new DataMap();
+        DataMapUtil.putAll(mPayloadDataMap, mPayload);
+    }
+
+    @Benchmark
+    public DataMap putObject() {
+        DataMapUtil.putObject(mDataMap, "key", mValue);
+        return mDataMap;
+    }
+
+    @Benchmark
+    public DataMap putAllPayload() {
+        DataMap dataMap = new DataMap();
+        DataMapUtil.putAll(dataMap, mPayload);
+        return dataMap;
+    }
+
+    @Benchmark
+    public Map<String, Object> toMapPayload() {
+        return DataMapUtil.toMap(mPayloadDataMap);
+    }
+}
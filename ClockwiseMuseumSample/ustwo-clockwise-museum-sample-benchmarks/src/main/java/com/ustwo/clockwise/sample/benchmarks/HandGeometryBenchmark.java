@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hand angle and position computation: the per-tick table lookups, the interpolated second hand used while sweeping,
+ * and rebuilding the tables on layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandGeometryBenchmark {
+
+    private final HandGeometry mHandGeometry = new HandGeometry();
+    private final float[] mSecondHandPoints = new float[4];
+    private int mSecondOfDay;
+    private float mSweepSecond;
+
+    @Setup
+    public void setUp() {
+        mHandGeometry.setDimensions(115f, 140f, 120f);
+    }
+
+    @Benchmark
+    public void tick(Blackhole blackhole) {
+        mSecondOfDay = (mSecondOfDay + 1) % (24 * 60 * 60);
+        int hour = mSecondOfDay / 3600;
+        int minute = mSecondOfDay / 60 % 60;
+        int second = mSecondOfDay % 60;
+
+        int hourPosition = HandGeometry.getHourPosition(hour, minute);
+        mHandGeometry.getSecondHand(second, mSecondHandPoints);
+
+        blackhole.consume(mHandGeometry.getHourDotX(hourPosition));
+        blackhole.consume(mHandGeometry.getHourDotY(hourPosition));
+        blackhole.consume(mHandGeometry.getMinuteDotX(minute));
+        blackhole.consume(mHandGeometry.getMinuteDotY(minute));
+        blackhole.consume(mSecondHandPoints);
+    }
+
+    @Benchmark
+    public float[] sweepSecondHand() {
+        // About one 60 fps frame per invocation
+        mSweepSecond += 0.016f;
+        if (mSweepSecond >= HandGeometry.MINUTE_POSITIONS) {
+            mSweepSecond -= HandGeometry.MINUTE_POSITIONS;
+        }
+        mHandGeometry.computeSecondHand(mSweepSecond, mSecondHandPoints);
+        return mSecondHandPoints;
+    }
+
+    @Benchmark
+    public HandGeometry setDimensions() {
+        mHandGeometry.setDimensions(115f, 140f, 120f);
+        return mHandGeometry;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects {@link LoopbackTransport} nodes in memory, simulating the latency and loss of a Bluetooth link.
+ * <p/>
+ * Every delivery is delayed by the base latency plus a random jitter and dropped with the loss probability. Data
+ * items behave as on the data layer: each receiver only gets the latest item per source and path, so an item replaced
+ * before it is delivered is never seen, and a lost item is retried after another latency period until delivered or
+ * replaced. Messages are delivered at most once and are not retried.
+ * <p/>
+ * Deliveries run on a single thread, so listeners are called one at a time as on a device.
+ */
+public class LoopbackNetwork {
+
+    private final long mLatencyMs;
+    private final long mJitterMs;
+    private final float mLossRate;
+    private final Random mRandom;
+    private final ScheduledExecutorService mExecutor = new ScheduledThreadPoolExecutor(1);
+
+    private final CopyOnWriteArrayList<LoopbackTransport> mNodes = new CopyOnWriteArrayList<>();
+
+    /** Latest item sequence per receiver, source and path. Guarded by this. */
+    private final Map<String, Long> mLatestItemSequences = new HashMap<>();
+    private final AtomicLong mItemSequence = new AtomicLong();
+
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+    private final AtomicLong mLostCount = new AtomicLong();
+    private final AtomicLong mReplacedCount = new AtomicLong();
+
+    /**
+     * @param latencyMs base delivery delay
+     * @param jitterMs  maximum random delay added to the base delay
+     * @param lossRate  probability, 0-1, that a delivery attempt is lost
+     * @param seed      seed for the jitter and loss, so runs are repeatable
+     */
+    public LoopbackNetwork(long latencyMs, long jitterMs, float lossRate, long seed) {
+        mLatencyMs = latencyMs;
+        mJitterMs = jitterMs;
+        mLossRate = lossRate;
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Add a node to the network.
+     */
+    public LoopbackTransport addNode(String nodeId) {
+        LoopbackTransport node = new LoopbackTransport(this, nodeId);
+        mNodes.add(node);
+        return node;
+    }
+
+    /**
+     * Stop delivering. Pending deliveries are dropped.
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Wait for pending deliveries, e.g. to check the state of the nodes once the network is quiet.
+     *
+     * @return true if the network went quiet within the timeout.
+     */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        ScheduledThreadPoolExecutor executor = (ScheduledThreadPoolExecutor) mExecutor;
+
+        while (executor.getQueue().size() > 0 || executor.getActiveCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+
+        return true;
+    }
+
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    public long getLostCount() {
+        return mLostCount.get();
+    }
+
+    /**
+     * @return the number of data items replaced by a later item before they were delivered.
+     */
+    public long getReplacedCount() {
+        return mReplacedCount.get();
+    }
+
+    void putData(final LoopbackTransport source, final String path, final Map<String, Object> data,
+            SyncTransport.Callback callback) {
+        final long sequence = mItemSequence.incrementAndGet();
+
+        for (final LoopbackTransport receiver : mNodes) {
+            if (receiver == source) {
+                continue;
+            }
+
+            final String itemKey = receiver.getNodeId() + '\n' + source.getNodeId() + '\n' + path;
+            synchronized (this) {
+                mLatestItemSequences.put(itemKey, sequence);
+            }
+
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isLatestItem(itemKey, sequence)) {
+                        mReplacedCount.incrementAndGet();
+                        return;
+                    }
+
+                    if (isLost()) {
+                        // The data layer keeps retrying until the item is delivered or replaced.
+                        schedule(this);
+                        return;
+                    }
+
+                    mDeliveredCount.incrementAndGet();
+                    receiver.deliverData(source.getNodeId(), path, data);
+                }
+            });
+        }
+
+        if (callback != null) {
+            callback.onResult(true);
+        }
+    }
+
+    void sendMessage(final LoopbackTransport source, final String path, final byte[] payload,
+            final SyncTransport.Callback callback) {
+        for (final LoopbackTransport receiver : mNodes) {
+            if (receiver == source) {
+                continue;
+            }
+
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    boolean delivered = !isLost();
+
+                    if (delivered) {
+                        mDeliveredCount.incrementAndGet();
+                        receiver.deliverMessage(source.getNodeId(), path, payload);
+                    }
+
+                    if (callback != null) {
+                        callback.onResult(delivered);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized boolean isLatestItem(String itemKey, long sequence) {
+        Long latest = mLatestItemSequences.get(itemKey);
+        return latest != null && latest == sequence;
+    }
+
+    private synchronized boolean isLost() {
+        boolean lost = mRandom.nextFloat() < mLossRate;
+        if (lost) {
+            mLostCount.incrementAndGet();
+        }
+        return lost;
+    }
+
+    private void schedule(Runnable delivery) {
+        long delayMs;
+        synchronized (this) {
+            delayMs = mLatencyMs + (mJitterMs > 0 ? (long) (mRandom.nextDouble() * mJitterMs) : 0);
+        }
+
+        if (!mExecutor.isShutdown()) {
+            mExecutor.schedule(delivery, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-memory node of a {@link LoopbackNetwork}.
+ */
+public class LoopbackTransport implements SyncTransport {
+
+    private final LoopbackNetwork mNetwork;
+    private final String mNodeId;
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    LoopbackTransport(LoopbackNetwork network, String nodeId) {
+        mNetwork = network;
+        mNodeId = nodeId;
+    }
+
+    public String getNodeId() {
+        return mNodeId;
+    }
+
+    @Override
+    public void putData(String path, Map<String, Object> data, Callback callback) {
+        mNetwork.putData(this, path, data, callback);
+    }
+
+    @Override
+    public void sendMessage(String path, byte[] payload, Callback callback) {
+        mNetwork.sendMessage(this, path, payload, callback);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    void deliverData(String sourceNodeId, String path, Map<String, Object> data) {
+        for (Listener listener : mListeners) {
+            listener.onDataChanged(sourceNodeId, path, data);
+        }
+    }
+
+    void deliverMessage(String sourceNodeId, String path, byte[] payload) {
+        for (Listener listener : new ArrayList<>(mListeners)) {
+            listener.onMessageReceived(sourceNodeId, path, payload);
+        }
+    }
+}
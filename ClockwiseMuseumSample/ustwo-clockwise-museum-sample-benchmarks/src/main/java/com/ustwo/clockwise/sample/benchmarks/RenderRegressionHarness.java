@@ -0,0 +1,430 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
+import com.ustwo.clockwise.sample.museum.MuseumFaceRenderer;
+import com.ustwo.clockwise.sample.museum.MuseumFaceTicker;
+import com.ustwo.clockwise.sample.museum.MuseumRenderState;
+import com.ustwo.clockwise.sample.museum.MuseumRenderStates;
+import com.ustwo.clockwise.sample.museum.MuseumSpec;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Renders the museum face headless through a full 12-hour cycle in every watch mode and theme, and checks the frames
+ * against a baseline.
+ * <p/>
+ * The face's {@link MuseumFaceRenderer} draws through the software {@link Canvas} stand-in. This harness plays the
+ * part of the face: it builds the {@link MuseumRenderState} of each mode with the face's {@link MuseumRenderStates}
+ * and steps the time through the face's {@link MuseumFaceTicker}, once a second in interactive mode and once a minute
+ * otherwise, so the allocations counted include the tick path.
+ * The center circle backgrounds are generated, standing in for the face's drawables. The cycle is measured after a one hour warm-up.
+ * <p/>
+ * For each theme and mode it records frames per second, the allocations per frame (from the thread's allocated
+ * bytes), the most lit pixels in a burn-in protection frame and a hash of the frame at every hour. It fails if:
+ * <ul>
+ * <li>a burn-in protection frame lit more than {@code SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO} of the display,</li>
+ * <li>a frame hash changed against the baseline,</li>
+ * <li>allocations per frame grew by more than {@code render.allocationTolerance} bytes (default 1), or</li>
+ * <li>the mean frame time grew by more than {@code render.timeThreshold} times (default 1.5). This is only checked
+ * when the baseline has frame times, and the output says when it is not.</li>
+ * </ul>
+ * Usage: {@code RenderRegressionHarness <baseline file> [--update]}. With --update the results are written as the
+ * new baseline, e.g. after an intended visual change. Frame times depend on the machine, so keep the baseline from
+ * the machine that runs the check.
+ */
+public class RenderRegressionHarness {
+
+    // The face's specs are for a 320px display, so the harness renders at that size and uses them unscaled
+    private static final int SIZE = (int) MuseumSpec.SPEC_SIZE;
+    private static final float CIRCLE_DIAMETER = MuseumSpec.SPEC_mCircleDiameter;
+
+    private static final int CYCLE_SECONDS = 12 * 60 * 60;
+    private static final int WARMUP_SECONDS = 60 * 60;
+
+    /**
+     * Mirrors com.ustwo.clockwise.WatchMode
+     */
+    enum Mode {
+        INTERACTIVE, AMBIENT, LOW_BIT, BURN_IN, LOW_BIT_BURN_IN
+    }
+
+    /**
+     * Results of one theme and mode
+     */
+    static class Result {
+        String name;
+        int frames;
+        long meanNanos;
+        long p99Nanos;
+        long maxNanos;
+        double allocatedBytesPerFrame;
+        int maxLitPixels;
+        String hash;
+    }
+
+    private final com.sun.management.ThreadMXBean mThreadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: RenderRegressionHarness <baseline file> [--update]");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        boolean isUpdate = args.length > 1 && "--update".equals(args[1]);
+
+        List<Result> results = new RenderRegressionHarness().run();
+        report(results, System.out);
+
+        List<String> budgetFailures = checkLitPixelBudget(results);
+        for (String failure : budgetFailures) {
+            System.err.println("FAILED: " + failure);
+        }
+        if (!budgetFailures.isEmpty()) {
+            System.exit(1);
+        }
+
+        if (isUpdate) {
+            writeBaseline(results, baselineFile);
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile + ", run with --update to create one");
+            return;
+        }
+
+        Properties baseline = readBaseline(baselineFile);
+        if (!hasFrameTimes(baseline)) {
+            System.out.println("Frame time check inactive: the baseline has no meanNanos. Run with --update"
+                    + " (renderSaveBaseline) on this machine to record them.");
+        }
+
+        List<String> failures = compare(results, baseline,
+                Double.parseDouble(System.getProperty("render.allocationTolerance", "1")),
+                Double.parseDouble(System.getProperty("render.timeThreshold", "1.5")));
+        for (String failure : failures) {
+            System.err.println("FAILED: " + failure);
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    public List<Result> run() {
+        List<Result> results = new ArrayList<>();
+        for (boolean isLightTheme : new boolean[]{false, true}) {
+            for (Mode mode : Mode.values()) {
+                results.add(run(isLightTheme, mode));
+            }
+        }
+        return results;
+    }
+
+    private Result run(boolean isLightTheme, Mode mode) {
+        Result result = new Result();
+        result.name = (isLightTheme ? "light" : "dark") + "." + mode.name().toLowerCase(Locale.US);
+
+        FaceSimulation face = new FaceSimulation(isLightTheme, mode);
+        int step = mode == Mode.INTERACTIVE ? 1 : 60;
+        int frameCount = CYCLE_SECONDS / step;
+        long[] frameNanos = new long[frameCount];
+        CRC32 crc = new CRC32();
+        int[] maxLitPixels = new int[1];
+
+        // Warm up the JIT and the renderer's layers
+        face.runCycle(step, WARMUP_SECONDS, frameNanos, null, null);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        face.runCycle(step, CYCLE_SECONDS, frameNanos, crc, maxLitPixels);
+        long allocatedAfter = mThreadMXBean.getThreadAllocatedBytes(threadId);
+
+        long totalNanos = 0;
+        for (long nanos : frameNanos) {
+            totalNanos += nanos;
+        }
+        Arrays.sort(frameNanos);
+
+        result.frames = frameCount;
+        result.meanNanos = totalNanos / frameCount;
+        result.p99Nanos = frameNanos[(int) (frameCount * 0.99)];
+        result.maxNanos = frameNanos[frameCount - 1];
+        result.allocatedBytesPerFrame = (allocatedAfter - allocatedBefore) / (double) frameCount;
+        result.maxLitPixels = maxLitPixels[0];
+        result.hash = Long.toHexString(crc.getValue());
+        return result;
+    }
+
+    static void report(List<Result> results, PrintStream out) {
+        out.println(String.format("%-24s %7s %9s %9s %9s %9s %12s %10s %10s", "theme.mode", "frames", "fps",
+                "mean us", "p99 us", "max us", "alloc B/fr", "max lit", "hash"));
+        for (Result result : results) {
+            out.println(String.format(Locale.US, "%-24s %7d %9.0f %9.1f %9.1f %9.1f %12.2f %10d %10s", result.name,
+                    result.frames, 1e9 / Math.max(1, result.meanNanos), result.meanNanos / 1e3,
+                    result.p99Nanos / 1e3, result.maxNanos / 1e3, result.allocatedBytesPerFrame,
+                    result.maxLitPixels, result.hash));
+        }
+    }
+
+    /**
+     * Checks that no burn-in protection frame lit more pixels than the face allows
+     */
+    static List<String> checkLitPixelBudget(List<Result> results) {
+        List<String> failures = new ArrayList<>();
+        int maxLitPixels = (int) (SIZE * SIZE * MuseumSpec.SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO);
+
+        for (Result result : results) {
+            if (result.maxLitPixels > maxLitPixels) {
+                failures.add(result.name + " lit " + result.maxLitPixels + " pixels, budget " + maxLitPixels);
+            }
+        }
+
+        return failures;
+    }
+
+    static List<String> compare(List<Result> results, Properties baseline, double allocationTolerance,
+            double timeThreshold) {
+        List<String> failures = new ArrayList<>();
+
+        for (Result result : results) {
+            String hash = baseline.getProperty(result.name + ".hash");
+            if (hash == null) {
+                failures.add(result.name + " is not in the baseline");
+                continue;
+            }
+            if (!hash.equals(result.hash)) {
+                failures.add(result.name + " frames changed: hash " + result.hash + ", baseline " + hash);
+            }
+
+            double baselineAllocated = Double.parseDouble(
+                    baseline.getProperty(result.name + ".allocatedBytesPerFrame", "0"));
+            if (result.allocatedBytesPerFrame > baselineAllocated + allocationTolerance) {
+                failures.add(String.format(Locale.US, "%s allocates %.2f bytes per frame, baseline %.2f",
+                        result.name, result.allocatedBytesPerFrame, baselineAllocated));
+            }
+
+            long baselineMeanNanos = Long.parseLong(baseline.getProperty(result.name + ".meanNanos", "0"));
+            if (baselineMeanNanos > 0 && result.meanNanos > baselineMeanNanos * timeThreshold) {
+                failures.add(String.format(Locale.US, "%s takes %.1f us per frame, baseline %.1f us",
+                        result.name, result.meanNanos / 1e3, baselineMeanNanos / 1e3));
+            }
+        }
+
+        return failures;
+    }
+
+    /**
+     * @return true if the baseline has frame times to compare against
+     */
+    static boolean hasFrameTimes(Properties baseline) {
+        for (String name : baseline.stringPropertyNames()) {
+            if (name.endsWith(".meanNanos")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Properties readBaseline(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static void writeBaseline(List<Result> results, File file) throws IOException {
+        Properties properties = new Properties();
+        for (Result result : results) {
+            properties.setProperty(result.name + ".hash", result.hash);
+            properties.setProperty(result.name + ".allocatedBytesPerFrame",
+                    String.format(Locale.US, "%.2f", result.allocatedBytesPerFrame));
+            properties.setProperty(result.name + ".meanNanos", Long.toString(result.meanNanos));
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "Render regression baseline, written by RenderRegressionHarness --update");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * The state of the face for one theme and mode, updated as the face does it
+     */
+    private static class FaceSimulation {
+
+        private final Mode mMode;
+        private final TimeTextFormatter mTimeTextFormatter = new TimeTextFormatter(Locale.US);
+        private final HandGeometry mHandGeometry = new HandGeometry();
+        private final MuseumFaceRenderer mRenderer;
+        private final MuseumFaceTicker mTicker;
+        private final Bitmap mScreenBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        private final Canvas mScreenCanvas = new Canvas(mScreenBitmap);
+        private final int[] mPixelRow = new int[SIZE];
+
+        FaceSimulation(boolean isLightTheme, Mode mode) {
+            mMode = mode;
+
+            mRenderer = new MuseumFaceRenderer(mTimeTextFormatter, mHandGeometry,
+                    MuseumSpec.SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO);
+            mRenderer.setLayout(SIZE, SIZE, CIRCLE_DIAMETER, MuseumSpec.SPEC_mHandDotDiameter,
+                    MuseumSpec.SPEC_mTimeTextPositionInCircle, MuseumSpec.SPEC_mDateTextPositionInCircle);
+            float maxSecondHandRadius = (float) Math.sqrt(2 * (SIZE * 0.5f) * (SIZE * 0.5f));
+            mHandGeometry.setDimensions(CIRCLE_DIAMETER * 0.5f, maxSecondHandRadius,
+                    MuseumSpec.SPEC_mHandDotDistanceFromCenter);
+            mRenderer.setRenderState(createRenderState(isLightTheme, mode));
+
+            mTicker = new MuseumFaceTicker(mTimeTextFormatter, mHandGeometry, mRenderer);
+            mTicker.setLayout(SIZE, SIZE, MuseumSpec.SPEC_mBurnInShift);
+        }
+
+        /**
+         * Creates the state the face uses for the given theme and mode
+         */
+        private static MuseumRenderState createRenderState(boolean isLightTheme, Mode mode) {
+            Paint timeTextPaint = new Paint();
+            timeTextPaint.setTextAlign(Paint.Align.CENTER);
+            timeTextPaint.setTextSize(MuseumSpec.SPEC_mTimeTextSize);
+
+            Paint dateTextPaint = new Paint();
+            dateTextPaint.setTextAlign(Paint.Align.CENTER);
+            dateTextPaint.setTextSize(MuseumSpec.SPEC_mDateTextSize);
+
+            MuseumRenderStates renderStates = new MuseumRenderStates(timeTextPaint, dateTextPaint);
+            renderStates.setStrokeWidths(MuseumSpec.SPEC_mSecondHandStroke, MuseumSpec.SPEC_mMinuteHandDotStroke,
+                    MuseumSpec.SPEC_mBurnInOutlineStroke);
+
+            switch (mode) {
+                case INTERACTIVE:
+                    return renderStates.createInteractiveState(isLightTheme,
+                            createBackground(Bitmap.Config.ARGB_8888, isLightTheme ? 0xFFe0e0e0 : 0xFF424242));
+                case AMBIENT:
+                    return renderStates.createAmbientState(createBackground(Bitmap.Config.ARGB_8888, 0xFF424242));
+                case LOW_BIT:
+                    return renderStates.createLowBitState(createBackground(Bitmap.Config.ALPHA_8, 0));
+                case BURN_IN:
+                    return renderStates.createBurnInState(true);
+                default:
+                    return renderStates.createBurnInState(false);
+            }
+        }
+
+        /**
+         * Steps through the given time from midnight, drawing a frame at every step
+         * @param crc If not null, updated with the frame at every full hour
+         * @param maxLitPixels If not null, its first element is raised to the most lit pixels of a burn-in frame
+         */
+        void runCycle(int step, int seconds, long[] frameNanos, CRC32 crc, int[] maxLitPixels) {
+            int frame = 0;
+            for (int secondOfCycle = 0; secondOfCycle < seconds; secondOfCycle += step) {
+                int hour = secondOfCycle / 3600;
+                int minute = secondOfCycle / 60 % 60;
+                int second = secondOfCycle % 60;
+
+                if (second == 0 || secondOfCycle == 0) {
+                    mTicker.updateDateAndTimeText(0, 1, hour, minute);
+                }
+                mTicker.updateHandPositions(hour, minute, second);
+
+                long startNanos = System.nanoTime();
+                mRenderer.draw(mScreenCanvas);
+                frameNanos[frame++] = System.nanoTime() - startNanos;
+
+                if (maxLitPixels != null && (mMode == Mode.BURN_IN || mMode == Mode.LOW_BIT_BURN_IN)) {
+                    maxLitPixels[0] = Math.max(maxLitPixels[0], mRenderer.getLastLitPixelCount());
+                }
+
+                if (crc != null && minute == 0 && second == 0) {
+                    updateCrc(crc);
+                }
+            }
+        }
+
+        private void updateCrc(CRC32 crc) {
+            for (int y = 0; y < SIZE; y++) {
+                mScreenBitmap.getPixels(mPixelRow, 0, SIZE, 0, y, SIZE, 1);
+                for (int pixel : mPixelRow) {
+                    crc.update(pixel >>> 24);
+                    crc.update(pixel >>> 16);
+                    crc.update(pixel >>> 8);
+                    crc.update(pixel);
+                }
+            }
+        }
+
+        /**
+         * Creates a center circle background: a disc with a lighter ring, standing in for the face's drawables
+         */
+        private static Bitmap createBackground(Bitmap.Config config, int color) {
+            int size = (int) CIRCLE_DIAMETER;
+            Bitmap bitmap = Bitmap.createBitmap(size, size, config);
+            float radius = size * 0.5f;
+
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    float dx = x + 0.5f - radius;
+                    float dy = y + 0.5f - radius;
+                    float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                    if (distance > radius) {
+                        continue;
+                    }
+                    if (config == Bitmap.Config.ALPHA_8) {
+                        // One bit mask: only the ring is lit
+                        bitmap.setPixel(x, y, distance > radius - 4 ? 0xFF000000 : 0);
+                    } else {
+                        bitmap.setPixel(x, y, distance > radius - 4 ? 0xFF9e9e9e : color);
+                    }
+                }
+            }
+            return bitmap;
+        }
+    }
+}
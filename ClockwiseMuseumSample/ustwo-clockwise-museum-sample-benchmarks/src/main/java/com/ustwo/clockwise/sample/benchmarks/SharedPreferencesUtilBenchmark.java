@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import android.content.SharedPreferences;
+import com.ustwo.clockwise.sample.common.util.PreferenceSchema;
+import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading and writing single preferences by key, as the config sync does for each changed key.
+ * <p/>
+ * The store is filled with {@link #mPreferenceCount} entries to check that reading one key does not depend on the
+ * size of the store. The key holds an int, so {@link SharedPreferencesUtil#getObject(SharedPreferences, String)} has
+ * to try the boolean and string getters first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SharedPreferencesUtilBenchmark {
+
+    private static final String KEY = "key_0";
+
+    @Param({"4", "64"})
+    public int mPreferenceCount;
+
+    private SharedPreferences mPrefs;
+    private PreferenceSchema mSchema;
+    private SharedPreferences.Editor mEditor;
+    private Integer mValue;
+
+    @Setup
+    public void setUp() {
+        mPrefs = new InMemorySharedPreferences();
+        SharedPreferences.Editor editor = mPrefs.edit();
+        for (int i = 0; i < mPreferenceCount; i++) {
+            editor.putInt("key_" + i, i);
+        }
+        editor.commit();
+
+        mSchema = new PreferenceSchema().add(KEY, Integer.class);
+        mEditor = mPrefs.edit();
+        mValue = 42;
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return SharedPreferencesUtil.getObject(mPrefs, KEY);
+    }
+
+    @Benchmark
+    public Object getObjectWithSchema() {
+        return SharedPreferencesUtil.getObject(mPrefs, mSchema, KEY);
+    }
+
+    @Benchmark
+    public SharedPreferences.Editor putObject() {
+        // Staged only; committing would measure the stand-in store rather than the util.
+        SharedPreferencesUtil.putObject(mEditor, KEY, mValue);
+        return mEditor;
+    }
+}
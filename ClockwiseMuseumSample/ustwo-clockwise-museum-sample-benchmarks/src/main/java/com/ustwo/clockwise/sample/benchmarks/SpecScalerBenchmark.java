@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import android.graphics.PointF;
+import com.ustwo.clockwise.sample.common.graphics.SpecScaler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Layout scaling behind the museum face's getFloatValueFromSpec and applyPointValueFromSpec, which delegate to
+ * {@link SpecScaler} with the face's 320px spec size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpecScalerBenchmark {
+
+    private static final float SPEC_SIZE = 320f;
+
+    // Spec dimensions of the museum face's layout pass
+    private static final float[] SPEC_VALUES = {10f, 141f, 131f, 10f, 40f, 14f, 4f, 2f, 2f};
+
+    private final PointF mSpecPoint = new PointF(160f, 120f);
+    private final PointF mOutput = new PointF();
+
+    private float mRenderSize = 280f;
+
+    @Benchmark
+    public float getFloatValueFromSpec() {
+        return SpecScaler.scale(SPEC_VALUES[1], SPEC_SIZE, mRenderSize);
+    }
+
+    @Benchmark
+    public PointF applyPointValueFromSpec() {
+        SpecScaler.scale(mOutput, mSpecPoint, SPEC_SIZE, mRenderSize);
+        return mOutput;
+    }
+
+    @Benchmark
+    public void layoutPass(Blackhole blackhole) {
+        for (float specValue : SPEC_VALUES) {
+            blackhole.consume(SpecScaler.scale(specValue, SPEC_SIZE, mRenderSize));
+        }
+        SpecScaler.scale(mOutput, mSpecPoint, SPEC_SIZE, mRenderSize);
+        blackhole.consume(mOutput);
+    }
+}
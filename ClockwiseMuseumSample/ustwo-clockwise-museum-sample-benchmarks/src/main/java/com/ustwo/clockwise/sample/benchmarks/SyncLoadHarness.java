@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a companion and a wearable {@link ConfigSyncNode} over a {@link LoopbackNetwork} and reports the sync
+ * throughput and latency. Run with the syncLoad task, or on a plain JVM:
+ * <pre>
+ * java ...SyncLoadHarness [seconds] [changes/s per node] [keys] [latency ms] [jitter ms] [loss rate] [flush ms]
+ * </pre>
+ * Both sides change random keys concurrently, so the conflict resolution is exercised as well as the transport.
+ * Latency is measured from a local change to its value being accepted by the peer; changes replaced before they are
+ * sent or received are counted as superseded. Exits with status 1 if the two sides do not converge.
+ */
+public class SyncLoadHarness {
+
+    /** Matches the default window of the config sync batcher. */
+    private static final long DEFAULT_FLUSH_WINDOW_MS = 500;
+
+    private static final long SETTLE_TIMEOUT_MS = 30000;
+
+    private final Map<String, Long> mChangeTimes = new ConcurrentHashMap<>();
+    private final List<Long> mLatencies = Collections.synchronizedList(new ArrayList<Long>());
+    private final AtomicLong mChangeCount = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int changesPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int keyCount = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        long latencyMs = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        long jitterMs = args.length > 4 ? Long.parseLong(args[4]) : 30;
+        float lossRate = args.length > 5 ? Float.parseFloat(args[5]) : 0.05f;
+        long flushWindowMs = args.length > 6 ? Long.parseLong(args[6]) : DEFAULT_FLUSH_WINDOW_MS;
+
+        boolean converged = new SyncLoadHarness().run(seconds, changesPerSecond, keyCount, latencyMs, jitterMs,
+                lossRate, flushWindowMs);
+        System.exit(converged ? 0 : 1);
+    }
+
+    /**
+     * @return true if both sides held the same values once the network was quiet.
+     */
+    public boolean run(int seconds, int changesPerSecond, int keyCount, long latencyMs, long jitterMs,
+            float lossRate, long flushWindowMs) throws InterruptedException {
+        LoopbackNetwork network = new LoopbackNetwork(latencyMs, jitterMs, lossRate, 42);
+        final ConfigSyncNode companion = new ConfigSyncNode(network.addNode("phone"),
+                SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION,
+                SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_COMPANION,
+                SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_WEARABLE);
+        final ConfigSyncNode wearable = new ConfigSyncNode(network.addNode("watch"),
+                SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE,
+                SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_WEARABLE,
+                SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_COMPANION);
+
+        ConfigSyncNode.OnConfigChangedListener latencyRecorder = new ConfigSyncNode.OnConfigChangedListener() {
+            @Override
+            public void onConfigChanged(ConfigSyncNode node, Map<String, Object> changes) {
+                long now = System.nanoTime();
+                for (Object value : changes.values()) {
+                    Long changeTime = mChangeTimes.remove(value);
+                    if (changeTime != null) {
+                        mLatencies.add(now - changeTime);
+                    }
+                }
+            }
+        };
+        companion.setOnConfigChangedListener(latencyRecorder);
+        wearable.setOnConfigChangedListener(latencyRecorder);
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        long changePeriodUs = Math.max(1, 1000000L / changesPerSecond);
+        for (ConfigSyncNode node : new ConfigSyncNode[]{companion, wearable}) {
+            executor.scheduleAtFixedRate(createChangeTask(node, keyCount), 0, changePeriodUs, TimeUnit.MICROSECONDS);
+            executor.scheduleAtFixedRate(createFlushTask(node), flushWindowMs, flushWindowMs, TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        // Send what is left, then once more so each side holds the peer's acknowledgement.
+        for (int i = 0; i < 2; i++) {
+            companion.flush();
+            wearable.flush();
+            network.awaitIdle(SETTLE_TIMEOUT_MS);
+        }
+        long elapsedNs = System.nanoTime() - start;
+        network.shutdown();
+
+        boolean converged = companion.getAll().equals(wearable.getAll());
+        printReport(network, elapsedNs, converged);
+        return converged;
+    }
+
+    private Runnable createChangeTask(final ConfigSyncNode node, final int keyCount) {
+        final Random random = new Random(node.getOrigin().hashCode());
+        return new Runnable() {
+            @Override
+            public void run() {
+                String key = "key_" + random.nextInt(keyCount);
+                String value = node.getOrigin() + ":" + mChangeCount.incrementAndGet();
+                mChangeTimes.put(value, System.nanoTime());
+                node.set(key, value);
+            }
+        };
+    }
+
+    private static Runnable createFlushTask(final ConfigSyncNode node) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                node.flush();
+            }
+        };
+    }
+
+    private void printReport(LoopbackNetwork network, long elapsedNs, boolean converged) {
+        List<Long> latencies;
+        synchronized (mLatencies) {
+            latencies = new ArrayList<>(mLatencies);
+        }
+        Collections.sort(latencies);
+
+        double elapsedSeconds = elapsedNs / 1e9;
+        System.out.println(String.format("changes: %d, applied by peer: %d, superseded: %d",
+                mChangeCount.get(), latencies.size(), mChangeCount.get() - latencies.size()));
+        System.out.println(String.format("throughput: %.1f changes/s applied, %.1f items/s delivered",
+                latencies.size() / elapsedSeconds, network.getDeliveredCount() / elapsedSeconds));
+        System.out.println(String.format("items delivered: %d, lost: %d, replaced in flight: %d",
+                network.getDeliveredCount(), network.getLostCount(), network.getReplacedCount()));
+        if (!latencies.isEmpty()) {
+            System.out.println(String.format("latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f",
+                    percentile(latencies, 0.5), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    latencies.get(latencies.size() - 1) / 1e6));
+        }
+        System.out.println(converged ? "converged" : "NOT converged");
+    }
+
+    private static double percentile(List<Long> sorted, double fraction) {
+        int index = (int) Math.min(sorted.size() - 1, Math.round(fraction * (sorted.size() - 1)));
+        return sorted.get(index) / 1e6;
+    }
+}
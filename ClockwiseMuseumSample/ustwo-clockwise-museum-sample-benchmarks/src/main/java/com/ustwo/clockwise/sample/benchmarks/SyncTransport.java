@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import java.util.Map;
+
+/**
+ * Moves data items and messages between simulated devices, modelled on the Wearable data layer.
+ * <p/>
+ * {@link LoopbackTransport} connects nodes in memory with simulated latency and loss, so the sync can be driven on a
+ * plain JVM.
+ * <p/>
+ * Data items follow data layer semantics: a later item on the same path from the same node replaces an earlier one,
+ * so a receiver may only see the latest. Whether a node also receives its own items depends on the transport, so
+ * each side of the sync puts its items on its own path. Values in a data item are Integer, Long, Boolean, String or
+ * nested maps of the same.
+ */
+public interface SyncTransport {
+
+    /**
+     * Called with the outcome of a put or send.
+     */
+    interface Callback {
+        void onResult(boolean success);
+    }
+
+    /**
+     * Receives data items and messages from other nodes.
+     */
+    interface Listener {
+        void onDataChanged(String sourceNodeId, String path, Map<String, Object> data);
+
+        void onMessageReceived(String sourceNodeId, String path, byte[] payload);
+    }
+
+    /**
+     * Put a data item for all other nodes to receive.
+     *
+     * @param path     identifier of the item
+     * @param data     item contents
+     * @param callback for the put result. Can be null.
+     */
+    void putData(String path, Map<String, Object> data, Callback callback);
+
+    /**
+     * Send a message to all connected nodes.
+     *
+     * @param path     identifier used to specify a particular endpoint at the receiving node
+     * @param payload  payload for the message. Can be null.
+     * @param callback for the send result, called once per node. Can be null.
+     */
+    void sendMessage(String path, byte[] payload, Callback callback);
+
+    void addListener(Listener listener);
+
+    void removeListener(Listener listener);
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.benchmarks;
+
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The date and time text formatting done by the museum face's updateDateAndTimeText on every time change. Each
+ * invocation advances one minute, so all hours, minutes and months are covered.
+ * <p/>
+ * {@link #simpleDateFormatBaseline()} formats the same minutes through the three SimpleDateFormat patterns the face
+ * used before {@link TimeTextFormatter}, so the two can be compared in one run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeTextFormatterBenchmark {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    @Param({"false", "true"})
+    public boolean mIs24Hour;
+
+    private TimeTextFormatter mFormatter;
+    private int mMinuteOfDay;
+    private int mDay;
+
+    private SimpleDateFormat mDateFormat;
+    private SimpleDateFormat mTimeFormat12;
+    private SimpleDateFormat mTimeFormat24;
+    private Date mDate;
+
+    @Setup
+    public void setUp() {
+        mFormatter = new TimeTextFormatter(Locale.US);
+
+        TimeZone timeZone = TimeZone.getTimeZone("UTC");
+        mDateFormat = new SimpleDateFormat("MMM dd", Locale.US);
+        mTimeFormat12 = new SimpleDateFormat("h:mm", Locale.US);
+        mTimeFormat24 = new SimpleDateFormat("HH:mm", Locale.US);
+        mDateFormat.setTimeZone(timeZone);
+        mTimeFormat12.setTimeZone(timeZone);
+        mTimeFormat24.setTimeZone(timeZone);
+        mDate = new Date(0);
+    }
+
+    @Benchmark
+    public int updateDateAndTimeText() {
+        mMinuteOfDay++;
+        if (mMinuteOfDay == MINUTES_PER_DAY) {
+            mMinuteOfDay = 0;
+            mDay = (mDay + 1) % (12 * 28);
+        }
+
+        mFormatter.formatDate(mDay / 28, mDay % 28 + 1);
+        mFormatter.formatTime(mMinuteOfDay / 60, mMinuteOfDay % 60, mIs24Hour);
+        return mFormatter.getTimeTextLength() + mFormatter.getDateTextLength();
+    }
+
+    @Benchmark
+    public int simpleDateFormatBaseline() {
+        mDate.setTime(mDate.getTime() + MILLIS_PER_MINUTE);
+
+        String dateText = mDateFormat.format(mDate);
+        String timeText = mIs24Hour ? mTimeFormat24.format(mDate) : mTimeFormat12.format(mDate);
+        return timeText.length() + dateText.length();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package android.graphics;
+
+import java.util.Arrays;
+
+/**
+ * JVM stand-in for {@code android.graphics.Bitmap}, holding ARGB pixels in an int array. ALPHA_8 bitmaps keep their
+ * alpha in the top byte and are drawn in the paint color, as on Android.
+ */
+public final class Bitmap {
+
+    public enum Config {
+        ALPHA_8, RGB_565, ARGB_4444, ARGB_8888
+    }
+
+    final int[] mPixels;
+    private final int mWidth;
+    private final int mHeight;
+    private final Config mConfig;
+    private boolean mIsRecycled = false;
+
+    private Bitmap(int width, int height, Config config) {
+        mWidth = width;
+        mHeight = height;
+        mConfig = config;
+        mPixels = new int[width * height];
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        return new Bitmap(width, height, config);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public Config getConfig() {
+        return mConfig;
+    }
+
+    public int getByteCount() {
+        return mWidth * mHeight * (mConfig == Config.ALPHA_8 ? 1 : mConfig == Config.ARGB_8888 ? 4 : 2);
+    }
+
+    public void recycle() {
+        mIsRecycled = true;
+    }
+
+    public boolean isRecycled() {
+        return mIsRecycled;
+    }
+
+    public int getPixel(int x, int y) {
+        return mPixels[y * mWidth + x];
+    }
+
+    public void setPixel(int x, int y, int color) {
+        mPixels[y * mWidth + x] = color;
+    }
+
+    public void eraseColor(int color) {
+        Arrays.fill(mPixels, color);
+    }
+
+    public void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(mPixels, (y + row) * mWidth + x, pixels, offset + row * stride, width);
+        }
+    }
+
+    public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, offset + row * stride, mPixels, (y + row) * mWidth + x, width);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package android.graphics;
+
+import java.util.Arrays;
+
+/**
+ * JVM stand-in for the parts of {@code android.graphics.Canvas} used by the renderer: a small software rasterizer
+ * drawing into a {@link Bitmap}.
+ * <p/>
+ * Only translation is supported as a transform. Shapes are anti-aliased with a one pixel coverage ramp when the
+ * paint asks for it. Text is drawn as a fixed pattern of cells per character instead of glyphs, so frames depend on
+ * the text without depending on the fonts of the machine.
+ * <p/>
+ * Output is deterministic on any JVM and drawing does not allocate, so the renderer's own allocations can be
+ * measured.
+ */
+public class Canvas {
+
+    private static final int MAX_SAVE_COUNT = 16;
+
+    // Text cells per character
+    private static final int GLYPH_COLUMNS = 3;
+    private static final int GLYPH_ROWS = 5;
+
+    private Bitmap mBitmap;
+
+    private float mTranslateX;
+    private float mTranslateY;
+    private int mClipLeft;
+    private int mClipTop;
+    private int mClipRight;
+    private int mClipBottom;
+
+    private final float[] mSavedTranslations = new float[MAX_SAVE_COUNT * 2];
+    private final int[] mSavedClips = new int[MAX_SAVE_COUNT * 4];
+    private int mSaveCount = 0;
+
+    public Canvas() {
+    }
+
+    public Canvas(Bitmap bitmap) {
+        setBitmap(bitmap);
+    }
+
+    public void setBitmap(Bitmap bitmap) {
+        mBitmap = bitmap;
+        mTranslateX = 0f;
+        mTranslateY = 0f;
+        mSaveCount = 0;
+        mClipLeft = 0;
+        mClipTop = 0;
+        mClipRight = bitmap != null ? bitmap.getWidth() : 0;
+        mClipBottom = bitmap != null ? bitmap.getHeight() : 0;
+    }
+
+    public int getWidth() {
+        return mBitmap.getWidth();
+    }
+
+    public int getHeight() {
+        return mBitmap.getHeight();
+    }
+
+    public int save() {
+        if (mSaveCount == MAX_SAVE_COUNT) {
+            throw new IllegalStateException("Too many saves");
+        }
+        mSavedTranslations[mSaveCount * 2] = mTranslateX;
+        mSavedTranslations[mSaveCount * 2 + 1] = mTranslateY;
+        mSavedClips[mSaveCount * 4] = mClipLeft;
+        mSavedClips[mSaveCount * 4 + 1] = mClipTop;
+        mSavedClips[mSaveCount * 4 + 2] = mClipRight;
+        mSavedClips[mSaveCount * 4 + 3] = mClipBottom;
+        return ++mSaveCount;
+    }
+
+    public void restore() {
+        if (mSaveCount == 0) {
+            throw new IllegalStateException("Underflow in restore");
+        }
+        mSaveCount--;
+        mTranslateX = mSavedTranslations[mSaveCount * 2];
+        mTranslateY = mSavedTranslations[mSaveCount * 2 + 1];
+        mClipLeft = mSavedClips[mSaveCount * 4];
+        mClipTop = mSavedClips[mSaveCount * 4 + 1];
+        mClipRight = mSavedClips[mSaveCount * 4 + 2];
+        mClipBottom = mSavedClips[mSaveCount * 4 + 3];
+    }
+
+    public void translate(float dx, float dy) {
+        mTranslateX += dx;
+        mTranslateY += dy;
+    }
+
+    public boolean clipRect(Rect rect) {
+        mClipLeft = Math.max(mClipLeft, (int) Math.floor(rect.left + mTranslateX));
+        mClipTop = Math.max(mClipTop, (int) Math.floor(rect.top + mTranslateY));
+        mClipRight = Math.min(mClipRight, (int) Math.ceil(rect.right + mTranslateX));
+        mClipBottom = Math.min(mClipBottom, (int) Math.ceil(rect.bottom + mTranslateY));
+        return mClipLeft < mClipRight && mClipTop < mClipBottom;
+    }
+
+    public void drawColor(int color) {
+        if ((color >>> 24) == 255) {
+            int width = mBitmap.getWidth();
+            for (int y = mClipTop; y < mClipBottom; y++) {
+                Arrays.fill(mBitmap.mPixels, y * width + mClipLeft, y * width + mClipRight, color);
+            }
+            return;
+        }
+
+        for (int y = mClipTop; y < mClipBottom; y++) {
+            for (int x = mClipLeft; x < mClipRight; x++) {
+                blend(x, y, color, 255);
+            }
+        }
+    }
+
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        int offsetX = Math.round(left + mTranslateX);
+        int offsetY = Math.round(top + mTranslateY);
+        int startX = Math.max(mClipLeft, offsetX);
+        int startY = Math.max(mClipTop, offsetY);
+        int endX = Math.min(mClipRight, offsetX + bitmap.getWidth());
+        int endY = Math.min(mClipBottom, offsetY + bitmap.getHeight());
+
+        if (bitmap.getConfig() != Bitmap.Config.ALPHA_8) {
+            // Opaque pixels are copied without blending
+            int[] srcPixels = bitmap.mPixels;
+            int[] dstPixels = mBitmap.mPixels;
+            for (int y = startY; y < endY; y++) {
+                int srcRow = (y - offsetY) * bitmap.getWidth() - offsetX;
+                int dstRow = y * mBitmap.getWidth();
+                for (int x = startX; x < endX; x++) {
+                    int pixel = srcPixels[srcRow + x];
+                    if ((pixel >>> 24) == 255) {
+                        dstPixels[dstRow + x] = pixel;
+                    } else {
+                        blend(x, y, pixel, 255);
+                    }
+                }
+            }
+            return;
+        }
+
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                drawBitmapPixel(bitmap, x - offsetX, y - offsetY, x, y, paint);
+            }
+        }
+    }
+
+    /**
+     * Draws the src region of the bitmap into dst, scaling with nearest neighbour sampling
+     */
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        if (dst.isEmpty()) {
+            return;
+        }
+        int srcLeft = src != null ? src.left : 0;
+        int srcTop = src != null ? src.top : 0;
+        int srcWidth = src != null ? src.width() : bitmap.getWidth();
+        int srcHeight = src != null ? src.height() : bitmap.getHeight();
+
+        int offsetX = Math.round(dst.left + mTranslateX);
+        int offsetY = Math.round(dst.top + mTranslateY);
+        int startX = Math.max(mClipLeft, offsetX);
+        int startY = Math.max(mClipTop, offsetY);
+        int endX = Math.min(mClipRight, offsetX + dst.width());
+        int endY = Math.min(mClipBottom, offsetY + dst.height());
+
+        for (int y = startY; y < endY; y++) {
+            int srcY = srcTop + (y - offsetY) * srcHeight / dst.height();
+            for (int x = startX; x < endX; x++) {
+                int srcX = srcLeft + (x - offsetX) * srcWidth / dst.width();
+                drawBitmapPixel(bitmap, srcX, srcY, x, y, paint);
+            }
+        }
+    }
+
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        cx += mTranslateX;
+        cy += mTranslateY;
+        boolean isStroke = paint.getStyle() == Paint.Style.STROKE;
+        float halfStroke = isStroke ? Math.max(paint.getStrokeWidth(), 1f) * 0.5f : 0f;
+        float outerRadius = radius + halfStroke;
+        float innerRadius = isStroke ? radius - halfStroke : -1f;
+
+        int startX = Math.max(mClipLeft, (int) Math.floor(cx - outerRadius - 1));
+        int startY = Math.max(mClipTop, (int) Math.floor(cy - outerRadius - 1));
+        int endX = Math.min(mClipRight, (int) Math.ceil(cx + outerRadius + 1));
+        int endY = Math.min(mClipBottom, (int) Math.ceil(cy + outerRadius + 1));
+
+        for (int y = startY; y < endY; y++) {
+            float dy = y + 0.5f - cy;
+            for (int x = startX; x < endX; x++) {
+                float dx = x + 0.5f - cx;
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                // Coverage is the overlap of the pixel with the ring between the inner and outer radius
+                float coverage = coverage(outerRadius - distance, paint);
+                if (innerRadius >= 0f) {
+                    coverage = Math.min(coverage, coverage(distance - innerRadius, paint));
+                }
+                if (coverage > 0f) {
+                    blend(x, y, paint.getColor(), Math.round(coverage * 255));
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a line with butt caps
+     */
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        float x0 = startX + mTranslateX;
+        float y0 = startY + mTranslateY;
+        float x1 = stopX + mTranslateX;
+        float y1 = stopY + mTranslateY;
+        float halfWidth = Math.max(paint.getStrokeWidth(), 1f) * 0.5f;
+
+        float lineX = x1 - x0;
+        float lineY = y1 - y0;
+        float length = (float) Math.sqrt(lineX * lineX + lineY * lineY);
+        if (length == 0f) {
+            return;
+        }
+        float dirX = lineX / length;
+        float dirY = lineY / length;
+
+        int left = Math.max(mClipLeft, (int) Math.floor(Math.min(x0, x1) - halfWidth - 1));
+        int top = Math.max(mClipTop, (int) Math.floor(Math.min(y0, y1) - halfWidth - 1));
+        int right = Math.min(mClipRight, (int) Math.ceil(Math.max(x0, x1) + halfWidth + 1));
+        int bottom = Math.min(mClipBottom, (int) Math.ceil(Math.max(y0, y1) + halfWidth + 1));
+
+        for (int y = top; y < bottom; y++) {
+            float py = y + 0.5f - y0;
+            for (int x = left; x < right; x++) {
+                float px = x + 0.5f - x0;
+                float along = px * dirX + py * dirY;
+                float across = Math.abs(px * dirY - py * dirX);
+                float coverage = Math.min(coverage(halfWidth - across, paint),
+                        Math.min(coverage(along, paint), coverage(length - along, paint)));
+                if (coverage > 0f) {
+                    blend(x, y, paint.getColor(), Math.round(coverage * 255));
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws each character as a {@value #GLYPH_COLUMNS}x{@value #GLYPH_ROWS} cell pattern derived from its code,
+     * 0.6 text sizes wide and 0.7 high, standing on the baseline
+     */
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        float glyphWidth = paint.getTextSize() * 0.6f;
+        float glyphHeight = paint.getTextSize() * 0.7f;
+        float textWidth = glyphWidth * count;
+
+        float left = x + mTranslateX;
+        if (paint.getTextAlign() == Paint.Align.CENTER) {
+            left -= textWidth * 0.5f;
+        } else if (paint.getTextAlign() == Paint.Align.RIGHT) {
+            left -= textWidth;
+        }
+        float top = y + mTranslateY - glyphHeight;
+
+        for (int i = 0; i < count; i++) {
+            int pattern = text[index + i] * 0x9E3779B1;
+            for (int cell = 0; cell < GLYPH_COLUMNS * GLYPH_ROWS; cell++) {
+                if (((pattern >>> cell) & 1) == 0) {
+                    continue;
+                }
+                float cellLeft = left + i * glyphWidth + (cell % GLYPH_COLUMNS) * glyphWidth / GLYPH_COLUMNS;
+                float cellTop = top + (cell / GLYPH_COLUMNS) * glyphHeight / GLYPH_ROWS;
+                fillRect(Math.round(cellLeft), Math.round(cellTop),
+                        Math.round(cellLeft + glyphWidth / GLYPH_COLUMNS), Math.round(cellTop + glyphHeight / GLYPH_ROWS),
+                        paint.getColor());
+            }
+        }
+    }
+
+    private void fillRect(int left, int top, int right, int bottom, int color) {
+        int startX = Math.max(mClipLeft, left);
+        int startY = Math.max(mClipTop, top);
+        int endX = Math.min(mClipRight, right);
+        int endY = Math.min(mClipBottom, bottom);
+
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                blend(x, y, color, 255);
+            }
+        }
+    }
+
+    private void drawBitmapPixel(Bitmap bitmap, int srcX, int srcY, int x, int y, Paint paint) {
+        int pixel = bitmap.mPixels[srcY * bitmap.getWidth() + srcX];
+        if (bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+            int color = paint != null ? paint.getColor() : 0xFF000000;
+            blend(x, y, color, pixel >>> 24);
+        } else {
+            blend(x, y, pixel, 255);
+        }
+    }
+
+    /**
+     * @param distance Signed distance of the pixel center inside the shape edge
+     * @return The fraction of the pixel covered, 0-1
+     */
+    private static float coverage(float distance, Paint paint) {
+        if (paint.isAntiAlias()) {
+            return Math.max(0f, Math.min(1f, distance + 0.5f));
+        }
+        return distance >= 0f ? 1f : 0f;
+    }
+
+    /**
+     * Composites a color over a pixel of the bitmap (source over)
+     * @param coverage Additional alpha of the color, 0-255
+     */
+    private void blend(int x, int y, int color, int coverage) {
+        int[] pixels = mBitmap.mPixels;
+        int i = y * mBitmap.getWidth() + x;
+        int srcAlpha = (color >>> 24) * coverage / 255;
+
+        if (srcAlpha == 255) {
+            pixels[i] = color;
+            return;
+        }
+        if (srcAlpha == 0) {
+            return;
+        }
+
+        int dst = pixels[i];
+        int inverse = 255 - srcAlpha;
+        int a = srcAlpha + (dst >>> 24) * inverse / 255;
+        int r = (((color >> 16) & 0xFF) * srcAlpha + ((dst >> 16) & 0xFF) * inverse) / 255;
+        int g = (((color >> 8) & 0xFF) * srcAlpha + ((dst >> 8) & 0xFF) * inverse) / 255;
+        int b = ((color & 0xFF) * srcAlpha + (dst & 0xFF) * inverse) / 255;
+        pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
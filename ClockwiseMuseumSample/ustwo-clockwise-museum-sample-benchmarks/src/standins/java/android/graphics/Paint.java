@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package android.graphics;
+
+/**
+ * JVM stand-in for the parts of {@code android.graphics.Paint} used by the renderer.
+ */
+public class Paint {
+
+    public static final int ANTI_ALIAS_FLAG = 0x01;
+    public static final int FILTER_BITMAP_FLAG = 0x02;
+    public static final int DITHER_FLAG = 0x04;
+
+    public enum Style {
+        FILL, STROKE, FILL_AND_STROKE
+    }
+
+    public enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    private int mFlags;
+    private int mColor = 0xFF000000;
+    private Style mStyle = Style.FILL;
+    private float mStrokeWidth = 0f;
+    private float mTextSize = 12f;
+    private Align mTextAlign = Align.LEFT;
+
+    public Paint() {
+    }
+
+    public Paint(int flags) {
+        mFlags = flags;
+    }
+
+    public Paint(Paint paint) {
+        mFlags = paint.mFlags;
+        mColor = paint.mColor;
+        mStyle = paint.mStyle;
+        mStrokeWidth = paint.mStrokeWidth;
+        mTextSize = paint.mTextSize;
+        mTextAlign = paint.mTextAlign;
+    }
+
+    public void setAntiAlias(boolean antiAlias) {
+        setFlag(ANTI_ALIAS_FLAG, antiAlias);
+    }
+
+    public boolean isAntiAlias() {
+        return (mFlags & ANTI_ALIAS_FLAG) != 0;
+    }
+
+    public void setFilterBitmap(boolean filter) {
+        setFlag(FILTER_BITMAP_FLAG, filter);
+    }
+
+    public void setDither(boolean dither) {
+        setFlag(DITHER_FLAG, dither);
+    }
+
+    public void setColor(int color) {
+        mColor = color;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public void setStyle(Style style) {
+        mStyle = style;
+    }
+
+    public Style getStyle() {
+        return mStyle;
+    }
+
+    public void setStrokeWidth(float width) {
+        mStrokeWidth = width;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public void setTextSize(float textSize) {
+        mTextSize = textSize;
+    }
+
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    public void setTextAlign(Align align) {
+        mTextAlign = align;
+    }
+
+    public Align getTextAlign() {
+        return mTextAlign;
+    }
+
+    private void setFlag(int flag, boolean isSet) {
+        mFlags = isSet ? mFlags | flag : mFlags & ~flag;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConfigSnapshotTest {
+
+    @Test
+    public void decodesWhatWasEncoded() {
+        Map<String, Object> values = createValues(4);
+
+        assertEquals(values, ConfigSnapshot.decode(ByteBuffer.wrap(ConfigSnapshot.encode(values))));
+    }
+
+    @Test
+    public void decodesSnapshotLargerThanOneChecksumChunk() {
+        Map<String, Object> values = createValues(200);
+        byte[] bytes = ConfigSnapshot.encode(values);
+
+        assertEquals(values, ConfigSnapshot.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void rejectsCorruptSnapshot() {
+        byte[] bytes = ConfigSnapshot.encode(createValues(200));
+        bytes[bytes.length / 2] ^= 1;
+
+        assertNull(ConfigSnapshot.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void rejectsTruncatedSnapshot() {
+        assertNull(ConfigSnapshot.decode(ByteBuffer.wrap(new byte[8])));
+    }
+
+    private static Map<String, Object> createValues(int count) {
+        Map<String, Object> values = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    values.put("int_" + i, i);
+                    break;
+                case 1:
+                    values.put("long_" + i, (long) i << 32);
+                    break;
+                case 2:
+                    values.put("boolean_" + i, i % 3 == 0);
+                    break;
+                default:
+                    values.put("string_" + i, "value " + i);
+                    break;
+            }
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigSyncProtocolTest {
+
+    private ConfigVersionTracker mCompanion;
+    private ConfigVersionTracker mWearable;
+    private Map<String, Object> mCompanionValues;
+    private Map<String, Object> mWearableValues;
+
+    @Before
+    public void setUp() {
+        mCompanion = new ConfigVersionTracker(SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+        mWearable = new ConfigVersionTracker(SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        mCompanionValues = new HashMap<>();
+        mWearableValues = new HashMap<>();
+    }
+
+    @Test
+    public void nothingToSendWithoutChanges() {
+        assertNull(write(mCompanion, mCompanionValues));
+    }
+
+    @Test
+    public void changeIsDeliveredAndAcknowledged() {
+        change(mCompanion, mCompanionValues, "a", 1);
+
+        Map<String, Object> payload = write(mCompanion, mCompanionValues);
+        assertEquals(SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION, payload.get(ConfigSyncProtocol.KEY_ORIGIN));
+        assertEquals(1, apply(mWearable, mWearableValues, payload));
+        assertEquals(1, mWearableValues.get("a"));
+
+        // Nothing new on the wearable, but its acknowledgement still has to reach the companion.
+        change(mWearable, mWearableValues, "b", true);
+        apply(mCompanion, mCompanionValues, write(mWearable, mWearableValues));
+
+        assertTrue(mCompanion.getUnacknowledgedLocalChanges().isEmpty());
+        assertNull(write(mCompanion, mCompanionValues));
+    }
+
+    @Test
+    public void oneWayTrafficIsAcknowledged() {
+        change(mCompanion, mCompanionValues, "a", 1);
+        Map<String, Object> first = write(mCompanion, mCompanionValues);
+        apply(mWearable, mWearableValues, first);
+
+        // The wearable changed nothing, so it sends only its acknowledgement.
+        assertTrue(ConfigSyncProtocol.needsAcknowledgement(first));
+        Map<String, Object> acknowledgement = ConfigSyncProtocol.writeAcknowledgement(mWearable,
+                valueSource(mWearableValues));
+        assertNull(acknowledgement.get(ConfigSyncProtocol.KEY_PREFS));
+        assertFalse(ConfigSyncProtocol.needsAcknowledgement(acknowledgement));
+        apply(mCompanion, mCompanionValues, acknowledgement);
+
+        change(mCompanion, mCompanionValues, "b", "x");
+        Map<String, Object> second = write(mCompanion, mCompanionValues);
+
+        assertEquals(Collections.singletonMap("b", (Object) "x"), second.get(ConfigSyncProtocol.KEY_PREFS));
+    }
+
+    @Test
+    public void acknowledgementCarriesUnacknowledgedChanges() {
+        change(mCompanion, mCompanionValues, "a", 1);
+        change(mWearable, mWearableValues, "b", true);
+        apply(mWearable, mWearableValues, write(mCompanion, mCompanionValues));
+
+        Map<String, Object> acknowledgement = ConfigSyncProtocol.writeAcknowledgement(mWearable,
+                valueSource(mWearableValues));
+        assertEquals(1, apply(mCompanion, mCompanionValues, acknowledgement));
+
+        assertEquals(mCompanionValues, mWearableValues);
+        assertTrue(mCompanion.getUnacknowledgedLocalChanges().isEmpty());
+    }
+
+    @Test
+    public void unacknowledgedChangeIsResent() {
+        change(mCompanion, mCompanionValues, "a", 1);
+        Map<String, Object> lost = write(mCompanion, mCompanionValues);
+
+        change(mCompanion, mCompanionValues, "b", "x");
+        Map<String, Object> resent = write(mCompanion, mCompanionValues);
+
+        assertEquals(2, ((Map<?, ?>) resent.get(ConfigSyncProtocol.KEY_PREFS)).size());
+        assertEquals(2, apply(mWearable, mWearableValues, resent));
+        assertEquals(0, apply(mWearable, mWearableValues, lost));
+    }
+
+    @Test
+    public void redeliveredPayloadIsIgnored() {
+        change(mCompanion, mCompanionValues, "a", 1);
+        Map<String, Object> payload = write(mCompanion, mCompanionValues);
+
+        assertEquals(1, apply(mWearable, mWearableValues, payload));
+        mWearableValues.put("a", 2);
+        mWearable.recordLocalChange("a");
+
+        assertEquals(0, apply(mWearable, mWearableValues, payload));
+        assertEquals(2, mWearableValues.get("a"));
+    }
+
+    @Test
+    public void concurrentChangesConverge() {
+        change(mCompanion, mCompanionValues, "a", 1);
+        change(mWearable, mWearableValues, "a", 2);
+
+        Map<String, Object> fromCompanion = write(mCompanion, mCompanionValues);
+        Map<String, Object> fromWearable = write(mWearable, mWearableValues);
+        apply(mWearable, mWearableValues, fromCompanion);
+        apply(mCompanion, mCompanionValues, fromWearable);
+
+        assertEquals(mCompanionValues, mWearableValues);
+        assertEquals(2, mCompanionValues.get("a"));
+    }
+
+    @Test
+    public void unversionedPayloadIsAppliedAsItIs() {
+        change(mWearable, mWearableValues, "a", 1);
+
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("a", 5);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(ConfigSyncProtocol.KEY_PREFS, prefs);
+
+        assertEquals(1, apply(mWearable, mWearableValues, payload));
+        assertEquals(5, mWearableValues.get("a"));
+    }
+
+    @Test
+    public void payloadWithoutPrefsChangesNothing() {
+        assertEquals(0, apply(mWearable, mWearableValues, new HashMap<String, Object>()));
+    }
+
+    private static void change(ConfigVersionTracker tracker, Map<String, Object> values, String key, Object value) {
+        values.put(key, value);
+        tracker.recordLocalChange(key);
+    }
+
+    private static Map<String, Object> write(ConfigVersionTracker tracker, Map<String, Object> values) {
+        return ConfigSyncProtocol.writeLocalChanges(tracker, valueSource(values));
+    }
+
+    private static ConfigSyncProtocol.ValueSource valueSource(final Map<String, Object> values) {
+        return new ConfigSyncProtocol.ValueSource() {
+            @Override
+            public Object get(String key) {
+                return values.get(key);
+            }
+        };
+    }
+
+    private static int apply(ConfigVersionTracker tracker, Map<String, Object> values, Map<String, Object> payload) {
+        Map<String, Object> accepted = ConfigSyncProtocol.applyRemoteChanges(tracker, payload);
+        values.putAll(accepted);
+        return accepted.size();
+    }
+}
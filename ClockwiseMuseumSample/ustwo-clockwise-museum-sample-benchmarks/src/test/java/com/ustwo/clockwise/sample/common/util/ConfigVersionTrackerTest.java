@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigVersionTrackerTest {
+
+    private ConfigVersionTracker mCompanion;
+    private ConfigVersionTracker mWearable;
+
+    @Before
+    public void setUp() {
+        mCompanion = new ConfigVersionTracker(SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+        mWearable = new ConfigVersionTracker(SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+    }
+
+    @Test
+    public void localChangesTakeIncreasingVersions() {
+        assertEquals(1, mCompanion.recordLocalChange("a"));
+        assertEquals(2, mCompanion.recordLocalChange("b"));
+        assertEquals(3, mCompanion.recordLocalChange("a"));
+
+        assertEquals(3, mCompanion.getVersion("a"));
+        assertEquals(SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION, mCompanion.getOrigin("a"));
+        assertEquals(Arrays.asList("b", "a"), mCompanion.getUnacknowledgedLocalChanges());
+    }
+
+    @Test
+    public void unknownKeyHasNoVersion() {
+        assertEquals(0, mCompanion.getVersion("a"));
+        assertNull(mCompanion.getOrigin("a"));
+    }
+
+    @Test
+    public void newerRemoteChangeWins() {
+        mCompanion.recordLocalChange("a");
+
+        assertTrue(mCompanion.applyRemoteChange("a", 2, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE));
+        assertEquals(SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE, mCompanion.getOrigin("a"));
+        assertEquals(2, mCompanion.getRemoteVersion());
+        assertEquals(2, mCompanion.getClock());
+    }
+
+    @Test
+    public void olderRemoteChangeLoses() {
+        mCompanion.recordLocalChange("a");
+        mCompanion.recordLocalChange("a");
+
+        assertFalse(mCompanion.applyRemoteChange("a", 1, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE));
+        assertEquals(SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION, mCompanion.getOrigin("a"));
+    }
+
+    @Test
+    public void conflictIsResolvedTheSameWayOnBothDevices() {
+        long companionVersion = mCompanion.recordLocalChange("a");
+        long wearableVersion = mWearable.recordLocalChange("a");
+        assertEquals(companionVersion, wearableVersion);
+
+        boolean companionAccepts = mCompanion.applyRemoteChange("a", wearableVersion,
+                SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        boolean wearableAccepts = mWearable.applyRemoteChange("a", companionVersion,
+                SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+
+        // "wearable" sorts after "companion", so the wearable's change wins on both sides.
+        assertTrue(companionAccepts);
+        assertFalse(wearableAccepts);
+        assertEquals(mCompanion.getOrigin("a"), mWearable.getOrigin("a"));
+        assertEquals(mCompanion.getVersion("a"), mWearable.getVersion("a"));
+    }
+
+    @Test
+    public void redeliveredChangeIsNotAppliedTwice() {
+        assertTrue(mCompanion.applyRemoteChange("a", 1, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE));
+        assertFalse(mCompanion.applyRemoteChange("a", 1, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE));
+    }
+
+    @Test
+    public void ackRemovesAcknowledgedLocalChanges() {
+        mCompanion.recordLocalChange("a");
+        mCompanion.recordLocalChange("b");
+
+        mCompanion.onPeerAck(1);
+        assertEquals(Collections.singletonList("b"), mCompanion.getUnacknowledgedLocalChanges());
+
+        mCompanion.onPeerAck(2);
+        assertTrue(mCompanion.getUnacknowledgedLocalChanges().isEmpty());
+    }
+
+    @Test
+    public void staleAckIsIgnored() {
+        mCompanion.recordLocalChange("a");
+        mCompanion.recordLocalChange("b");
+        mCompanion.onPeerAck(2);
+
+        mCompanion.onPeerAck(1);
+        assertEquals(2, mCompanion.getPeerAckVersion());
+    }
+
+    @Test
+    public void ackBeyondClockIsClamped() {
+        mCompanion.recordLocalChange("a");
+        mCompanion.onPeerAck(10);
+        assertEquals(1, mCompanion.getPeerAckVersion());
+
+        mCompanion.recordLocalChange("b");
+        assertEquals(Collections.singletonList("b"), mCompanion.getUnacknowledgedLocalChanges());
+    }
+
+    @Test
+    public void remoteChangesSinceSkipsLocalChanges() {
+        mCompanion.recordLocalChange("a");
+        mCompanion.applyRemoteChange("b", 2, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        mCompanion.applyRemoteChange("c", 3, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+
+        assertEquals(Arrays.asList("b", "c"), mCompanion.getRemoteChangesSince(0));
+        assertEquals(Collections.singletonList("c"), mCompanion.getRemoteChangesSince(2));
+    }
+
+    @Test
+    public void restoredStateContinuesTheClock() {
+        mCompanion.restoreVersion("a", 5, SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        mCompanion.restoreState(3, 2, 5);
+
+        assertEquals(5, mCompanion.getClock());
+        assertEquals(6, mCompanion.recordLocalChange("b"));
+    }
+}
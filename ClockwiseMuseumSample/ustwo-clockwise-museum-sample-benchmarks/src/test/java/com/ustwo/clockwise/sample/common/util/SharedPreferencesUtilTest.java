@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import android.content.SharedPreferences;
+
+import com.ustwo.clockwise.sample.benchmarks.InMemorySharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SharedPreferencesUtilTest {
+
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void setUp() {
+        mPrefs = new InMemorySharedPreferences();
+        mPrefs.edit()
+                .putBoolean("boolean", true)
+                .putString("string", "value")
+                .putInt("int", 42)
+                .putLong("long", 1L << 40)
+                .commit();
+    }
+
+    @Test
+    public void getObjectReadsEverySupportedType() {
+        assertEquals(true, SharedPreferencesUtil.getObject(mPrefs, "boolean"));
+        assertEquals("value", SharedPreferencesUtil.getObject(mPrefs, "string"));
+        assertEquals(42, SharedPreferencesUtil.getObject(mPrefs, "int"));
+        assertEquals(1L << 40, SharedPreferencesUtil.getObject(mPrefs, "long"));
+    }
+
+    @Test
+    public void getObjectReturnsNullForMissingKey() {
+        assertNull(SharedPreferencesUtil.getObject(mPrefs, "missing"));
+    }
+
+    @Test
+    public void schemaReadsKnownAndUnknownKeys() {
+        PreferenceSchema schema = new PreferenceSchema()
+                .add("int", Integer.class)
+                .add("long", Long.class)
+                .add("missing", String.class);
+
+        assertEquals(42, SharedPreferencesUtil.getObject(mPrefs, schema, "int"));
+        assertEquals(1L << 40, SharedPreferencesUtil.getObject(mPrefs, schema, "long"));
+        assertEquals("value", SharedPreferencesUtil.getObject(mPrefs, schema, "string"));
+        assertNull(SharedPreferencesUtil.getObject(mPrefs, schema, "missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void schemaRejectsUnsupportedType() {
+        new PreferenceSchema().add("float", Float.class);
+    }
+}
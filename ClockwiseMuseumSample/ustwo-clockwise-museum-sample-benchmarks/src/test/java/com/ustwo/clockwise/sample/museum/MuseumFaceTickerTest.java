@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.Paint;
+import android.graphics.PointF;
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class MuseumFaceTickerTest {
+
+    private static final int SIZE = (int) MuseumSpec.SPEC_SIZE;
+    private static final int CYCLE_SECONDS = 12 * 60 * 60;
+    private static final int MEASURED_CYCLES = 10;
+
+    private final com.sun.management.ThreadMXBean mThreadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private TimeTextFormatter mTimeTextFormatter;
+    private MuseumFaceTicker mTicker;
+
+    @Before
+    public void setUp() {
+        mTimeTextFormatter = new TimeTextFormatter(Locale.US);
+        HandGeometry handGeometry = new HandGeometry();
+        handGeometry.setDimensions(MuseumSpec.SPEC_mCircleDiameter * 0.5f, SIZE,
+                MuseumSpec.SPEC_mHandDotDistanceFromCenter);
+
+        MuseumFaceRenderer renderer = new MuseumFaceRenderer(mTimeTextFormatter, handGeometry,
+                MuseumSpec.SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO);
+        renderer.setRenderState(new MuseumRenderStates(new Paint(), new Paint()).createBurnInState(true));
+
+        mTicker = new MuseumFaceTicker(mTimeTextFormatter, handGeometry, renderer);
+        mTicker.setLayout(SIZE, SIZE, MuseumSpec.SPEC_mBurnInShift);
+    }
+
+    /**
+     * The tick path runs once a second, so anything it allocates shows up in every cycle. The JIT may still allocate
+     * while compiling during the first measured cycles, so the cycle allocating least has to allocate nothing.
+     */
+    @Test
+    public void tickPathDoesNotAllocate() {
+        runCycle();
+
+        long threadId = Thread.currentThread().getId();
+        long minAllocated = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_CYCLES && minAllocated > 0; i++) {
+            long allocatedBefore = mThreadMXBean.getThreadAllocatedBytes(threadId);
+            runCycle();
+            minAllocated = Math.min(minAllocated, mThreadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+
+        assertEquals("bytes allocated by " + CYCLE_SECONDS + " ticks", 0, minAllocated);
+    }
+
+    @Test
+    public void reformatsTimeWhen24HourFormatChanges() {
+        mTicker.updateDateAndTimeText(2, 5, 15, 45);
+        assertEquals("3:45", getTimeText());
+        assertEquals("Mar 05", new String(mTimeTextFormatter.getDateText(), 0,
+                mTimeTextFormatter.getDateTextLength()));
+
+        mTicker.set24HourFormat(true);
+        assertEquals("15:45", getTimeText());
+
+        mTicker.updateDateAndTimeText(2, 5, 9, 5);
+        assertEquals("09:05", getTimeText());
+    }
+
+    @Test
+    public void burnInOffsetCirclesEveryEightMinutes() {
+        PointF offset = new PointF(0f, 0f);
+
+        MuseumRenderStates.getBurnInOffset(0, 4f, offset);
+        assertEquals(0f, offset.x, 0f);
+        assertEquals(-4f, offset.y, 0f);
+
+        MuseumRenderStates.getBurnInOffset(2, 4f, offset);
+        assertEquals(4f, offset.x, 0f);
+        assertEquals(0f, offset.y, 0f);
+
+        MuseumRenderStates.getBurnInOffset(1, 4f, offset);
+        assertEquals(3f, offset.x, 0f);
+        assertEquals(-3f, offset.y, 0f);
+
+        MuseumRenderStates.getBurnInOffset(MuseumRenderStates.BURN_IN_OFFSET_PERIOD_MINUTES + 2, 4f, offset);
+        assertEquals(4f, offset.x, 0f);
+        assertEquals(0f, offset.y, 0f);
+    }
+
+    /**
+     * Ticks once a second through 12 hours as the face's onTimeChanged does, sweeping every other minute and
+     * toggling the 24-hour format every hour
+     */
+    private void runCycle() {
+        for (int secondOfCycle = 0; secondOfCycle < CYCLE_SECONDS; secondOfCycle++) {
+            int hour = secondOfCycle / 3600;
+            int minute = secondOfCycle / 60 % 60;
+            int second = secondOfCycle % 60;
+
+            if (second == 0) {
+                mTicker.updateDateAndTimeText(hour % 12, 1 + hour, hour, minute);
+                if (minute == 0) {
+                    mTicker.set24HourFormat(hour % 2 == 0);
+                }
+            }
+            if (minute % 2 == 0) {
+                mTicker.updateHandPositions(hour, minute, second);
+            } else {
+                mTicker.updateHandPositions(hour, minute, second, 0.5f);
+            }
+        }
+    }
+
+    private String getTimeText() {
+        return new String(mTimeTextFormatter.getTimeText(), 0, mTimeTextFormatter.getTimeTextLength());
+    }
+}
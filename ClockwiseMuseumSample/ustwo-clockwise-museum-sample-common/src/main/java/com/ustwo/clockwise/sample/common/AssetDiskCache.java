@@ -0,0 +1,353 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Disk cache of decoded asset bitmaps, keyed by asset digest and size.
+ * <p/>
+ * Entries hold raw pixels, so reading one maps the file and copies its pixels with no image decoding. Each entry has
+ * a CRC32 of its pixels, checked on read; a corrupt entry is deleted and treated as a miss. The least recently used
+ * entries are deleted once the cache exceeds its byte cap.
+ * <p/>
+ * Entry layout, big endian: int magic, int width, int height, int config ordinal, int pixel CRC32, then the pixels.
+ */
+public class AssetDiskCache {
+
+    private static final String TAG = AssetDiskCache.class.getSimpleName();
+
+    private static final int MAGIC = 0x43574143; // "CWAC"
+    private static final int HEADER_SIZE = 20;
+    private static final String ENTRY_SUFFIX = ".px";
+
+    /** Bytes copied out of an entry at a time to compute its checksum. */
+    private static final int CHECKSUM_CHUNK_SIZE = 16 * 1024;
+
+    private final File mDirectory;
+    private final long mMaxSizeBytes;
+
+    /** Entry sizes by file name, least recently used first. Guarded by this. */
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSizeBytes;
+    private boolean mIsInitialised;
+
+    /** Reused to checksum entries as they are read. Guarded by this. */
+    private final byte[] mChecksumChunk = new byte[CHECKSUM_CHUNK_SIZE];
+
+    private long mHitCount;
+    private long mMissCount;
+
+    /**
+     * @param directory    directory the entries are stored in. Created if missing.
+     * @param maxSizeBytes total size of the entries above which the least recently used are deleted
+     */
+    public AssetDiskCache(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Reads a cached bitmap. Blocking, do not call from the UI thread.
+     *
+     * @return the bitmap, or null if it is not cached or the entry is corrupt.
+     */
+    public synchronized Bitmap get(String digest, int width, int height) {
+        initialise();
+
+        String name = getEntryName(digest, width, height);
+        if (!mEntries.containsKey(name)) {
+            mMissCount++;
+            return null;
+        }
+
+        File file = new File(mDirectory, name);
+        Bitmap bitmap = readEntry(file, width, height);
+
+        if (bitmap == null) {
+            Log.w(TAG, "Discarding corrupt cache entry " + name);
+            removeEntry(name);
+            mMissCount++;
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        mHitCount++;
+        return bitmap;
+    }
+
+    /**
+     * Stores a bitmap, replacing any entry with the same key. Blocking, do not call from the UI thread.
+     */
+    public synchronized void put(String digest, Bitmap bitmap) {
+        initialise();
+
+        String name = getEntryName(digest, bitmap.getWidth(), bitmap.getHeight());
+        File file = new File(mDirectory, name);
+
+        try {
+            writeEntry(file, bitmap);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write cache entry " + name + ": " + e.getMessage());
+            file.delete();
+            return;
+        }
+
+        Long previousSize = mEntries.put(name, file.length());
+        if (previousSize != null) {
+            mSizeBytes -= previousSize;
+        }
+        mSizeBytes += file.length();
+
+        trimToSize();
+    }
+
+    /**
+     * Deletes all entries.
+     */
+    public synchronized void clear() {
+        initialise();
+
+        for (String name : mEntries.keySet()) {
+            new File(mDirectory, name).delete();
+        }
+        mEntries.clear();
+        mSizeBytes = 0;
+    }
+
+    public synchronized long getSizeBytes() {
+        initialise();
+        return mSizeBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Loads the existing entries, oldest first, the first time the cache is used.
+     */
+    private void initialise() {
+        if (mIsInitialised) {
+            return;
+        }
+        mIsInitialised = true;
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(TAG, "Failed to create cache directory " + mDirectory);
+            return;
+        }
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+
+        for (File file : files) {
+            if (file.getName().endsWith(ENTRY_SUFFIX)) {
+                mEntries.put(file.getName(), file.length());
+                mSizeBytes += file.length();
+            }
+        }
+
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+
+        while (mSizeBytes > mMaxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mSizeBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void removeEntry(String name) {
+        Long size = mEntries.remove(name);
+        if (size != null) {
+            mSizeBytes -= size;
+        }
+        new File(mDirectory, name).delete();
+    }
+
+    /**
+     * @return a file name for the key. Characters other than digits and lower case letters are hex encoded so any
+     * digest is safe to use.
+     */
+    private static String getEntryName(String digest, int width, int height) {
+        StringBuilder name = new StringBuilder(digest.length() * 2 + 16);
+
+        for (int i = 0; i < digest.length(); i++) {
+            char c = digest.charAt(i);
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')) {
+                name.append(c);
+            } else {
+                name.append('_').append(Integer.toHexString(c));
+            }
+        }
+
+        return name.append('-').append(width).append('x').append(height).append(ENTRY_SUFFIX).toString();
+    }
+
+    /**
+     * Writes an entry. A bitmap without a {@link Bitmap.Config}, whose pixel format can't be recorded, is stored as
+     * {@link Bitmap.Config#ARGB_8888}.
+     */
+    private static void writeEntry(File file, Bitmap bitmap) throws IOException {
+        if (bitmap.getConfig() == null) {
+            Bitmap converted = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            if (converted == null) {
+                throw new IOException("Failed to convert a bitmap without a config");
+            }
+
+            try {
+                writeEntry(file, converted);
+            } finally {
+                converted.recycle();
+            }
+            return;
+        }
+
+        ByteBuffer pixels = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(pixels);
+
+        CRC32 crc = new CRC32();
+        crc.update(pixels.array(), 0, pixels.capacity());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(bitmap.getWidth());
+        header.putInt(bitmap.getHeight());
+        header.putInt(bitmap.getConfig().ordinal());
+        header.putInt((int) crc.getValue());
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+
+        try {
+            outputStream.write(header.array());
+            outputStream.write(pixels.array());
+        } finally {
+            outputStream.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Failed to rename " + tempFile);
+        }
+    }
+
+    /**
+     * Reads an entry. The file is mapped rather than read onto the heap, and the pixels are copied from the mapping
+     * straight into the bitmap. Must be called holding the lock, as it uses {@link #mChecksumChunk}.
+     */
+    private Bitmap readEntry(File file, int width, int height) {
+        RandomAccessFile randomAccessFile = null;
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            return readEntry(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), width, height);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    // Ignore.
+                }
+            }
+        }
+    }
+
+    private Bitmap readEntry(ByteBuffer buffer, int width, int height) {
+        Bitmap.Config[] configs = Bitmap.Config.values();
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != width || buffer.getInt() != height) {
+            return null;
+        }
+
+        int configOrdinal = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (configOrdinal < 0 || configOrdinal >= configs.length) {
+            return null;
+        }
+
+        // CRC32 only takes arrays on this API level, so the pixels are copied out in chunks to checksum them.
+        CRC32 crc = new CRC32();
+        while (buffer.hasRemaining()) {
+            int count = Math.min(mChecksumChunk.length, buffer.remaining());
+            buffer.get(mChecksumChunk, 0, count);
+            crc.update(mChecksumChunk, 0, count);
+        }
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, configs[configOrdinal]);
+        if (bitmap.getByteCount() != buffer.limit() - HEADER_SIZE) {
+            bitmap.recycle();
+            return null;
+        }
+
+        buffer.position(HEADER_SIZE);
+        bitmap.copyPixelsFromBuffer(buffer);
+        return bitmap;
+    }
+}
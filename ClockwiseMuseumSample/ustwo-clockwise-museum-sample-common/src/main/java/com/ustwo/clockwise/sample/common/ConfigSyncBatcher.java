@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncState;
+import com.ustwo.clockwise.sample.common.util.DataMapUtil;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
+import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coalesces preference changes before they are sent over the data layer.
+ * <p/>
+ * Changes queued for the same path within the batch window are merged into a single
+ * {@link SharedPreferencesUtil#DATA_KEY_CONFIG_PREFS} payload and sent as one data item. A later value for a key
+ * replaces an earlier one in the same batch. The window starts with the first change queued for a path, so a batch
+ * is never delayed by more than the window however many changes follow.
+ * <p/>
+ * When created with a {@link ConfigSyncState}, the keys of a batch are given versions together when it is sent, and
+ * the batch carries every local change the peer has not yet acknowledged, instead of only the keys queued in the
+ * window. This means a batch which replaced an earlier, undelivered data item on the same path still carries that
+ * item's changes.
+ * <p/>
+ * When created with a {@link PreferenceWriter}, queued values are also stored through it straight away. Only the data
+ * item is batched: local listeners see the change immediately, and it is kept if the process dies within the window.
+ * <p/>
+ * Must only be used from the thread of the looper it was created on.
+ */
+public class ConfigSyncBatcher {
+
+    /** Default time changes are collected for before being sent, in milliseconds. */
+    public static final long DEFAULT_BATCH_WINDOW_MS = 500;
+
+    private final WearableAPIHelper mWearableAPIHelper;
+    private final long mBatchWindowMs;
+    private final Handler mHandler;
+    private final ConfigSyncState mConfigSyncState;
+    private final PreferenceWriter mPreferenceWriter;
+
+    /** Pending values per data path, in the order the keys were first changed. */
+    private final Map<String, Map<String, Object>> mPendingBatches = new HashMap<>();
+
+    private final Map<String, Runnable> mFlushRunnables = new HashMap<>();
+
+    public ConfigSyncBatcher(WearableAPIHelper wearableAPIHelper) {
+        this(wearableAPIHelper, null);
+    }
+
+    public ConfigSyncBatcher(WearableAPIHelper wearableAPIHelper, ConfigSyncState configSyncState) {
+        this(wearableAPIHelper, configSyncState, null);
+    }
+
+    public ConfigSyncBatcher(WearableAPIHelper wearableAPIHelper, ConfigSyncState configSyncState,
+            PreferenceWriter preferenceWriter) {
+        this(wearableAPIHelper, configSyncState, preferenceWriter, DEFAULT_BATCH_WINDOW_MS, Looper.myLooper());
+    }
+
+    /**
+     * @param wearableAPIHelper helper used to send the batches
+     * @param configSyncState   versions of the local config, or null to send only the queued values
+     * @param preferenceWriter  writer the queued values are stored through, or null if the caller stores them
+     * @param batchWindowMs     time changes are collected for before being sent
+     * @param looper            looper the batches are sent on
+     */
+    public ConfigSyncBatcher(WearableAPIHelper wearableAPIHelper, ConfigSyncState configSyncState,
+            PreferenceWriter preferenceWriter, long batchWindowMs, Looper looper) {
+        mWearableAPIHelper = wearableAPIHelper;
+        mConfigSyncState = configSyncState;
+        mPreferenceWriter = preferenceWriter;
+        mBatchWindowMs = batchWindowMs;
+        mHandler = new Handler(looper);
+    }
+
+    /**
+     * Queue a changed preference to be sent on the given path. Unless the batcher was created with a
+     * {@link PreferenceWriter}, the value must already be stored locally.
+     *
+     * @param path  data path the batch is sent on
+     * @param key   preference key
+     * @param value preference value. Must be a type supported by {@link DataMapUtil#putObject(DataMap, String, Object)}
+     */
+    public void queue(final String path, String key, Object value) {
+        if (mPreferenceWriter != null) {
+            mPreferenceWriter.put(key, value).flush();
+        }
+
+        Map<String, Object> batch = mPendingBatches.get(path);
+
+        if (batch == null) {
+            batch = new LinkedHashMap<>();
+            mPendingBatches.put(path, batch);
+        }
+
+        boolean isNewBatch = batch.isEmpty();
+        batch.put(key, value);
+
+        if (isNewBatch) {
+            Runnable flushRunnable = mFlushRunnables.get(path);
+
+            if (flushRunnable == null) {
+                flushRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(path);
+                    }
+                };
+                mFlushRunnables.put(path, flushRunnable);
+            }
+
+            mHandler.postDelayed(flushRunnable, mBatchWindowMs);
+        }
+    }
+
+    /**
+     * Send the pending batch for a path immediately.
+     */
+    public void flush(String path) {
+        Runnable flushRunnable = mFlushRunnables.get(path);
+        if (flushRunnable != null) {
+            mHandler.removeCallbacks(flushRunnable);
+        }
+
+        Map<String, Object> batch = mPendingBatches.get(path);
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        DataMap dataMap = new DataMap();
+
+        if (mConfigSyncState != null) {
+            // The values were stored when they were queued.
+            mConfigSyncState.recordLocalChanges(batch.keySet());
+            batch.clear();
+
+            // The versions make every payload unique, so no timestamp is needed.
+            if (!mConfigSyncState.writeLocalChanges(dataMap)) {
+                return;
+            }
+        } else {
+            DataMap prefsDataMap = new DataMap();
+            for (Map.Entry<String, Object> entry : batch.entrySet()) {
+                DataMapUtil.putObject(prefsDataMap, entry.getKey(), entry.getValue());
+            }
+            batch.clear();
+
+            // We have to make the data map unique to ensure Wear API sends it to the other device. This is required
+            // because it is valid to send the same config change multiple times if the other device was alternately
+            // changing the config value to something else.
+            dataMap.putDataMap(SharedPreferencesUtil.DATA_KEY_CONFIG_PREFS, prefsDataMap);
+            dataMap.putLong(SharedPreferencesUtil.DATA_KEY_CONFIG_TIMESTAMP, System.currentTimeMillis());
+        }
+
+        mWearableAPIHelper.putDataMap(path, dataMap, null);
+    }
+
+    /**
+     * Send all pending batches immediately. Call this before the owner is destroyed so no changes are lost.
+     */
+    public void flushAll() {
+        for (String path : mPendingBatches.keySet()) {
+            flush(path);
+        }
+    }
+}
@@ -25,7 +25,6 @@ package com.ustwo.clockwise.sample.common;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.util.Log;
 
@@ -42,12 +41,28 @@ import com.google.android.gms.wearable.NodeApi;
 import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
+import com.ustwo.clockwise.sample.common.util.BitmapDecodeUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class for sending data to the Google Play Services Wearable API.
+ * <p/>
+ * Operations requested while the client is disconnected are held in a bounded queue and sent in order once the
+ * client connects. A single background thread waits for the connection and drains the queue, so the number of threads
+ * stays constant regardless of how many operations are queued. When the queue is full the oldest operation is
+ * dropped. Operations requested while others are still queued are queued behind them, so they never overtake.
+ * <p/>
+ * The set of connected nodes is cached once connected and kept up to date from node events, so messages are sent
+ * without first querying the node api. The cache is only re-queried when a send to a cached node fails.
  */
 public class WearableAPIHelper {
 
@@ -56,24 +71,103 @@ public class WearableAPIHelper {
     /** Max time we'll wait for the Google API to client to connect in seconds. */
     private static final int MAX_API_CONNECTION_TIME = 30;
 
+    /** Max time we'll wait for an asset to be fetched in seconds. */
+    private static final int MAX_ASSET_LOAD_TIME = 15;
+
+    /** Directory in the app cache directory holding decoded assets. */
+    private static final String ASSET_CACHE_DIR = "assets";
+
+    /** Max total size of decoded assets kept on disk in bytes. */
+    private static final long MAX_ASSET_CACHE_SIZE = 8 * 1024 * 1024;
+
+    /** Max number of operations held while waiting for a connection. */
+    private static final int MAX_PENDING_OPERATIONS = 32;
+
     private GoogleApiClient mGoogleApiClient;
 
     private WearableAPIHelperListener mListener;
 
+    /** Decoded assets, created on first use as opening it touches the disk. */
+    private final File mAssetCacheDir;
+    private AssetDiskCache mAssetDiskCache;
+
+    /** Waits for the api connection off the UI thread. */
+    private final ExecutorService mConnectionExecutor = Executors.newSingleThreadExecutor();
+
+    /** Operations waiting for a connection, oldest first. Guarded by itself. */
+    private final ArrayDeque<Runnable> mPendingOperations = new ArrayDeque<>(MAX_PENDING_OPERATIONS);
+
+    private boolean mIsConnectionTaskScheduled;
+
+    /** Whether an operation taken from the queue is being run. Guarded by mPendingOperations. */
+    private boolean mIsDraining;
+
+    /** Whether {@link #onDestroy()} has been called. Guarded by mPendingOperations. */
+    private boolean mIsDestroyed;
+    private int mPeakPendingOperationCount;
+    private long mDroppedOperationCount;
+
+    /** Ids of the currently connected nodes. Guarded by itself. */
+    private final Set<String> mConnectedNodeIds = new LinkedHashSet<>();
+
+    /** Whether {@link #mConnectedNodeIds} has been populated since the last connection. Guarded by mConnectedNodeIds. */
+    private boolean mIsNodeCacheValid;
+
+    private final NodeApi.NodeListener mNodeListener = new NodeApi.NodeListener() {
+        @Override
+        public void onPeerConnected(Node node) {
+            synchronized (mConnectedNodeIds) {
+                mConnectedNodeIds.add(node.getId());
+            }
+        }
+
+        @Override
+        public void onPeerDisconnected(Node node) {
+            synchronized (mConnectedNodeIds) {
+                mConnectedNodeIds.remove(node.getId());
+            }
+        }
+    };
+
+    private final Runnable mConnectionTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (mPendingOperations) {
+                mIsConnectionTaskScheduled = false;
+            }
+
+            if (connectGoogleApiClient()) {
+                drainPendingOperations();
+            } // else, we failed to connect to the API. Operations stay queued until the next attempt.
+        }
+    };
+
     public WearableAPIHelper(Context context, WearableAPIHelperListener listener) {
         mListener = listener;
+        mAssetCacheDir = new File(context.getCacheDir(), ASSET_CACHE_DIR);
 
         mGoogleApiClient = new GoogleApiClient.Builder(context)
                 .addConnectionCallbacks(new GoogleApiClient.ConnectionCallbacks() {
                     @Override
                     public void onConnected(Bundle connectionHint) {
                         Log.v(TAG, "Wearable API connected");
+                        Wearable.NodeApi.addListener(mGoogleApiClient, mNodeListener);
+                        refreshConnectedNodes();
+                        // Drain on the connection thread, so operations never run from two threads at once
+                        boolean hasPendingOperations;
+                        synchronized (mPendingOperations) {
+                            hasPendingOperations = !mPendingOperations.isEmpty();
+                        }
+                        if (hasPendingOperations) {
+                            scheduleConnectionTask();
+                        }
                         mListener.onWearableAPIConnected(mGoogleApiClient);
                     }
 
                     @Override
                     public void onConnectionSuspended(int cause) {
                         Log.e(TAG, "Wearable API connection suspended. Cause: " + cause);
+                        invalidateConnectedNodes();
                         mListener.onWearableAPIConnectionSuspended(cause);
                     }
                 })
@@ -109,6 +203,110 @@ public class WearableAPIHelper {
         return connected;
     }
 
+    /**
+     * Queues an operation to run once the client is connected, dropping the oldest queued operation if the queue is
+     * full, and makes sure a connection attempt is in progress.
+     */
+    private void enqueuePendingOperation(Runnable operation) {
+        synchronized (mPendingOperations) {
+            if (mPendingOperations.size() >= MAX_PENDING_OPERATIONS) {
+                mPendingOperations.poll();
+                mDroppedOperationCount++;
+                Log.w(TAG, "Pending operation queue full, dropped oldest operation");
+            }
+
+            mPendingOperations.add(operation);
+            mPeakPendingOperationCount = Math.max(mPeakPendingOperationCount, mPendingOperations.size());
+        }
+
+        scheduleConnectionTask();
+    }
+
+    /**
+     * Makes sure a connection attempt, followed by a drain of the queue, is scheduled on the connection thread.
+     */
+    private void scheduleConnectionTask() {
+        synchronized (mPendingOperations) {
+            if (mIsConnectionTaskScheduled) {
+                return;
+            }
+            mIsConnectionTaskScheduled = true;
+        }
+
+        if (!mConnectionExecutor.isShutdown()) {
+            mConnectionExecutor.execute(mConnectionTask);
+        }
+    }
+
+    /**
+     * Runs an operation straight away if the client is connected and no earlier operation is queued or running.
+     * Otherwise it is queued behind them.
+     */
+    private void runInOrder(Runnable operation) {
+        boolean runNow;
+
+        synchronized (mPendingOperations) {
+            if (mIsDestroyed) {
+                Log.w(TAG, "Ignoring operation requested after onDestroy");
+                return;
+            }
+            runNow = mGoogleApiClient.isConnected() && mPendingOperations.isEmpty() && !mIsDraining;
+        }
+
+        if (runNow) {
+            operation.run();
+        } else {
+            enqueuePendingOperation(operation);
+        }
+    }
+
+    /**
+     * Runs all queued operations in the order they were requested. Only called on the connection thread.
+     */
+    private void drainPendingOperations() {
+        Runnable operation;
+
+        while (true) {
+            synchronized (mPendingOperations) {
+                operation = mGoogleApiClient.isConnected() ? mPendingOperations.poll() : null;
+                mIsDraining = operation != null;
+            }
+
+            if (operation == null) {
+                break;
+            }
+
+            operation.run();
+        }
+    }
+
+    /**
+     * @return the number of operations currently waiting for a connection.
+     */
+    public int getPendingOperationCount() {
+        synchronized (mPendingOperations) {
+            return mPendingOperations.size();
+        }
+    }
+
+    /**
+     * @return the highest number of operations that have been waiting for a connection at once.
+     */
+    public int getPeakPendingOperationCount() {
+        synchronized (mPendingOperations) {
+            return mPeakPendingOperationCount;
+        }
+    }
+
+    /**
+     * @return the number of operations dropped because the pending queue was full.
+     */
+    public long getDroppedOperationCount() {
+        synchronized (mPendingOperations) {
+            return mDroppedOperationCount;
+        }
+    }
+
     /**
      * Put a message on the data layer for the watch to receive. This is sent to all connected nodes.
      *
@@ -118,40 +316,130 @@ public class WearableAPIHelper {
      */
     public void putMessage(final String path, final byte[] payload,
             final ResultCallback<MessageApi.SendMessageResult> callback) {
-        if (mGoogleApiClient.isConnected()) {
-            // Send immediately.
-            doPutMessage(path, payload, callback);
-        } else {
-            // Wait for an api connection then send off the UI thread.
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    if (connectGoogleApiClient()) {
-                        doPutMessage(path, payload, callback);
-                    } // else, we failed to connect to the API.
-                }
-            }).start();
-        }
+        // Sent immediately when possible, otherwise in order with any other pending operations.
+        runInOrder(new Runnable() {
+            @Override
+            public void run() {
+                doPutMessage(path, payload, callback);
+            }
+        });
     }
 
     private void doPutMessage(final String path, final byte[] payload,
             final ResultCallback<MessageApi.SendMessageResult> callback) {
+        String[] nodeIds = getCachedNodeIds();
+
+        if (nodeIds != null) {
+            // Fan out to the cached nodes straight away.
+            for (String nodeId : nodeIds) {
+                sendMessage(nodeId, path, payload, callback, true);
+            }
+        } else {
+            // Cache not populated yet, query the nodes first.
+            Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).setResultCallback(
+                    new ResultCallback<NodeApi.GetConnectedNodesResult>() {
+                        @Override
+                        public void onResult(NodeApi.GetConnectedNodesResult result) {
+                            updateConnectedNodes(result);
+
+                            for (Node node : result.getNodes()) {
+                                sendMessage(node.getId(), path, payload, callback, false);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Sends a message to a single node. If the node came from the cache and the send fails, the cache is re-queried
+     * and the message is sent again if the node is still connected.
+     */
+    private void sendMessage(final String nodeId, final String path, final byte[] payload,
+            final ResultCallback<MessageApi.SendMessageResult> callback, boolean isCachedNode) {
+        PendingResult<MessageApi.SendMessageResult> pendingResult =
+                Wearable.MessageApi.sendMessage(mGoogleApiClient, nodeId, path, payload);
+
+        if (!isCachedNode) {
+            if (callback != null) {
+                pendingResult.setResultCallback(callback);
+            }
+            return;
+        }
+
+        pendingResult.setResultCallback(new ResultCallback<MessageApi.SendMessageResult>() {
+            @Override
+            public void onResult(MessageApi.SendMessageResult result) {
+                if (result.getStatus().isSuccess() || !mGoogleApiClient.isConnected()) {
+                    if (callback != null) {
+                        callback.onResult(result);
+                    }
+                    return;
+                }
+
+                Log.w(TAG, "Failed to send message to cached node " + nodeId + ", refreshing connected nodes");
+                Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).setResultCallback(
+                        new ResultCallback<NodeApi.GetConnectedNodesResult>() {
+                            @Override
+                            public void onResult(NodeApi.GetConnectedNodesResult nodesResult) {
+                                updateConnectedNodes(nodesResult);
+
+                                for (Node node : nodesResult.getNodes()) {
+                                    if (nodeId.equals(node.getId())) {
+                                        sendMessage(nodeId, path, payload, callback, false);
+                                        break;
+                                    }
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Queries the connected nodes and replaces the cached set.
+     */
+    private void refreshConnectedNodes() {
         Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).setResultCallback(
                 new ResultCallback<NodeApi.GetConnectedNodesResult>() {
                     @Override
                     public void onResult(NodeApi.GetConnectedNodesResult result) {
-                        for (Node node : result.getNodes()) {
-                            PendingResult<MessageApi.SendMessageResult> pendingResult =
-                                    Wearable.MessageApi.sendMessage(mGoogleApiClient, node.getId(), path, payload);
-
-                            if (callback != null) {
-                                pendingResult.setResultCallback(callback);
-                            }
-                        }
+                        updateConnectedNodes(result);
                     }
                 });
     }
 
+    private void updateConnectedNodes(NodeApi.GetConnectedNodesResult result) {
+        if (!result.getStatus().isSuccess()) {
+            return;
+        }
+
+        synchronized (mConnectedNodeIds) {
+            mConnectedNodeIds.clear();
+
+            for (Node node : result.getNodes()) {
+                mConnectedNodeIds.add(node.getId());
+            }
+
+            mIsNodeCacheValid = true;
+        }
+    }
+
+    private void invalidateConnectedNodes() {
+        synchronized (mConnectedNodeIds) {
+            mConnectedNodeIds.clear();
+            mIsNodeCacheValid = false;
+        }
+    }
+
+    /**
+     * @return a copy of the cached connected node ids, or null if the cache has not been populated.
+     */
+    private String[] getCachedNodeIds() {
+        synchronized (mConnectedNodeIds) {
+            return mIsNodeCacheValid ? mConnectedNodeIds.toArray(new String[mConnectedNodeIds.size()]) : null;
+        }
+    }
+
     /**
      * Put a data map on the data layer for the watch to receive. This is sent to all connected wathces.
      *
@@ -160,20 +448,13 @@ public class WearableAPIHelper {
      * @param callback for put result. Can be null.
      */
     public void putDataMap(final String path, final DataMap dataMap, final ResultCallback<DataApi.DataItemResult> callback) {
-        if (mGoogleApiClient.isConnected()) {
-            // Send immediately.
-            doPutDataMap(path, dataMap, callback);
-        } else {
-            // Wait for an api connection then send off the UI thread.
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    if (connectGoogleApiClient()) {
-                        doPutDataMap(path, dataMap, callback);
-                    } // else, we failed to connect to the API.
-                }
-            }).start();
-        }
+        // Sent immediately when possible, otherwise in order with any other pending operations.
+        runInOrder(new Runnable() {
+            @Override
+            public void run() {
+                doPutDataMap(path, dataMap, callback);
+            }
+        });
     }
 
     private void doPutDataMap(String path, DataMap dataMap, ResultCallback<DataApi.DataItemResult> callback) {
@@ -192,26 +473,124 @@ public class WearableAPIHelper {
     }
 
     /**
-     * Loads a bitmap from from a wearable data asset. Note, this is blocking. Do not call from the UI thread.
+     * Loads a bitmap from from a wearable data asset at its full size. Note, this is blocking. Do not call from the UI
+     * thread.
      * @param asset
      * @return bitmap, or null if the bitmap could not be loaded.
      */
     public Bitmap loadBitmap(Asset asset) {
-        Bitmap bitmap = null;
+        return loadBitmap(asset, 0, 0);
+    }
+
+    /**
+     * Loads a bitmap from a wearable data asset, decoded straight to the target size and cropped from the centre to
+     * keep its aspect ratio. Only the encoded image and the downsampled result are held in memory. Note, this is
+     * blocking for up to {@link #MAX_ASSET_LOAD_TIME} seconds. Do not call from the UI thread.
+     * <p/>
+     * Bitmaps loaded at a target size are kept in a disk cache keyed by the asset digest, which is checked before the
+     * data layer, so an asset is only transferred once per size even when the client is disconnected.
+     * @param asset
+     * @param targetWidth width of the bitmap, or 0 to load at full size
+     * @param targetHeight height of the bitmap, or 0 to load at full size
+     * @return bitmap, or null if the bitmap could not be loaded.
+     */
+    public Bitmap loadBitmap(Asset asset, int targetWidth, int targetHeight) {
+        String digest = asset.getDigest();
+        boolean isCacheable = digest != null && targetWidth > 0 && targetHeight > 0;
+
+        if (isCacheable) {
+            Bitmap cachedBitmap = getAssetDiskCache().get(digest, targetWidth, targetHeight);
+            if (cachedBitmap != null) {
+                return cachedBitmap;
+            }
+        }
+
+        if (!mGoogleApiClient.isConnected()) {
+            return null;
+        }
+
+        DataApi.GetFdForAssetResult result = Wearable.DataApi.getFdForAsset(mGoogleApiClient, asset)
+                .await(MAX_ASSET_LOAD_TIME, TimeUnit.SECONDS);
+
+        if (!result.getStatus().isSuccess()) {
+            Log.e(TAG, "Failed to get asset: " + result.getStatus().getStatusCode());
+            return null;
+        }
+
+        InputStream assetInputStream = result.getInputStream();
+        if (assetInputStream == null) {
+            result.release();
+            return null;
+        }
 
-        if(mGoogleApiClient.isConnected()) {
-            InputStream assetInputStream = Wearable.DataApi.getFdForAsset(mGoogleApiClient, asset).await().getInputStream();
-            bitmap = BitmapFactory.decodeStream(assetInputStream);
+        byte[] data;
+        try {
+            // The encoded image is read once so both the bounds pass and the decode can use it.
+            data = BitmapDecodeUtil.readFully(assetInputStream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read asset: " + e.getMessage());
+            return null;
+        } finally {
+            result.release();
+        }
+
+        Bitmap bitmap = BitmapDecodeUtil.decodeCenterCrop(data, targetWidth, targetHeight);
+
+        if (bitmap != null && isCacheable) {
+            getAssetDiskCache().put(digest, bitmap);
         }
 
         return bitmap;
     }
 
+    private synchronized AssetDiskCache getAssetDiskCache() {
+        if (mAssetDiskCache == null) {
+            mAssetDiskCache = new AssetDiskCache(mAssetCacheDir, MAX_ASSET_CACHE_SIZE);
+        }
+        return mAssetDiskCache;
+    }
+
     /**
-     * Disconnects the Google Api client
+     * Disconnects the Google Api client on the connection thread, once operations already queued have been sent. If
+     * the client cannot connect within {@link #MAX_API_CONNECTION_TIME} seconds they are discarded. Operations
+     * requested after this are ignored.
      */
     public void onDestroy() {
-        mGoogleApiClient.disconnect();
+        synchronized (mPendingOperations) {
+            if (mIsDestroyed) {
+                return;
+            }
+            mIsDestroyed = true;
+        }
+
+        mConnectionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean hasPendingOperations;
+                synchronized (mPendingOperations) {
+                    hasPendingOperations = !mPendingOperations.isEmpty();
+                }
+
+                if (hasPendingOperations && connectGoogleApiClient()) {
+                    drainPendingOperations();
+                }
+
+                synchronized (mPendingOperations) {
+                    if (!mPendingOperations.isEmpty()) {
+                        Log.w(TAG, "Discarding " + mPendingOperations.size() + " pending operations");
+                        mPendingOperations.clear();
+                    }
+                }
+
+                if (mGoogleApiClient.isConnected()) {
+                    Wearable.NodeApi.removeListener(mGoogleApiClient, mNodeListener);
+                }
+                invalidateConnectedNodes();
+
+                mGoogleApiClient.disconnect();
+            }
+        });
+        mConnectionExecutor.shutdown();
     }
 
     public interface WearableAPIHelperListener {
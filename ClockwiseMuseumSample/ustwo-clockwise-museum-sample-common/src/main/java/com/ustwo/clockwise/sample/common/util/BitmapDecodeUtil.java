@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Utils for decoding bitmaps straight to the size they are drawn at.
+ */
+public class BitmapDecodeUtil {
+
+    private static final String TAG = BitmapDecodeUtil.class.getSimpleName();
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Reads a stream to its end and closes it.
+     *
+     * @param inputStream
+     * @return the bytes read.
+     * @throws IOException if the stream could not be read.
+     */
+    public static byte[] readFully(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(inputStream.available(),
+                    READ_BUFFER_SIZE));
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int count;
+
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Decodes an encoded image to exactly the target size, cropping from the centre to keep its aspect ratio.
+     * <p/>
+     * The image bounds are read first, then only the cropped region is decoded, downsampled by the largest power of
+     * two which keeps it at least as large as the target. The full resolution image is never held in memory.
+     *
+     * @param data         encoded image
+     * @param targetWidth  width of the result, or 0 to decode at full size
+     * @param targetHeight height of the result, or 0 to decode at full size
+     * @return the bitmap, or null if the data could not be decoded.
+     */
+    public static Bitmap decodeCenterCrop(byte[] data, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, null);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        Rect cropRect = getCenterCropRect(options.outWidth, options.outHeight, targetWidth, targetHeight);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(cropRect.width(), cropRect.height(), targetWidth, targetHeight);
+
+        Bitmap decoded = decodeRegion(data, cropRect, options);
+
+        if (decoded == null) {
+            return null;
+        }
+
+        if (decoded.getWidth() == targetWidth && decoded.getHeight() == targetHeight) {
+            return decoded;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, targetWidth, targetHeight, true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+
+    private static Bitmap decodeRegion(byte[] data, Rect cropRect, BitmapFactory.Options options) {
+        BitmapRegionDecoder regionDecoder = null;
+
+        try {
+            regionDecoder = BitmapRegionDecoder.newInstance(data, 0, data.length, false);
+            return regionDecoder.decodeRegion(cropRect, options);
+        } catch (IOException e) {
+            // Region decoding is only supported for JPEG and PNG. Decode the whole image downsampled, then crop.
+            Log.w(TAG, "Region decoding not supported, decoding the whole image: " + e.getMessage());
+        } finally {
+            if (regionDecoder != null) {
+                regionDecoder.recycle();
+            }
+        }
+
+        Bitmap sampled = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (sampled == null) {
+            return null;
+        }
+
+        int sampleSize = options.inSampleSize;
+        int x = Math.min(cropRect.left / sampleSize, sampled.getWidth() - 1);
+        int y = Math.min(cropRect.top / sampleSize, sampled.getHeight() - 1);
+        int width = Math.max(1, Math.min(cropRect.width() / sampleSize, sampled.getWidth() - x));
+        int height = Math.max(1, Math.min(cropRect.height() / sampleSize, sampled.getHeight() - y));
+
+        Bitmap cropped = Bitmap.createBitmap(sampled, x, y, width, height);
+        if (cropped != sampled) {
+            sampled.recycle();
+        }
+        return cropped;
+    }
+
+    /**
+     * @return the largest centred rectangle of the source with the aspect ratio of the target.
+     */
+    public static Rect getCenterCropRect(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        int cropWidth = sourceWidth;
+        int cropHeight = sourceHeight;
+
+        // Compare aspect ratios without division: source is wider than the target if sw/sh > tw/th.
+        if ((long) sourceWidth * targetHeight > (long) targetWidth * sourceHeight) {
+            cropWidth = (int) ((long) sourceHeight * targetWidth / targetHeight);
+        } else {
+            cropHeight = (int) ((long) sourceWidth * targetHeight / targetWidth);
+        }
+
+        cropWidth = Math.max(1, cropWidth);
+        cropHeight = Math.max(1, cropHeight);
+
+        int left = (sourceWidth - cropWidth) / 2;
+        int top = (sourceHeight - cropHeight) / 2;
+        return new Rect(left, top, left + cropWidth, top + cropHeight);
+    }
+
+    /**
+     * @return the largest power of two sample size which keeps the source at least as large as the target, or 1 if the
+     * target has no size.
+     */
+    public static int calculateInSampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+
+        while (sourceWidth / (inSampleSize * 2) >= targetWidth && sourceHeight / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of a config store, read at startup instead of parsing the SharedPreferences XML.
+ * <p/>
+ * Layout, big endian:
+ * <pre>
+ * int   magic
+ * int   format version
+ * int   entry count
+ * entry count times:
+ *   short key length, key UTF-8 bytes
+ *   byte  type
+ *   value: int, long, byte (boolean) or short length + UTF-8 bytes (string)
+ * int   CRC32 of all preceding bytes
+ * </pre>
+ * Files are written to a temporary file and renamed, so readers never see a partial snapshot. A snapshot which is
+ * missing, from another format version or fails its checksum reads as null and callers fall back to SharedPreferences.
+ */
+public class ConfigSnapshot {
+
+    private static final int MAGIC = 0x43574353; // "CWCS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte TYPE_INT = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_STRING = 3;
+
+    /** Header is magic, version and entry count. */
+    private static final int HEADER_SIZE = 12;
+    private static final int CHECKSUM_SIZE = 4;
+
+    /** Bytes copied out of the buffer at a time to compute the checksum. */
+    private static final int CHECKSUM_CHUNK_SIZE = 512;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ConfigSnapshot() {
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @return the values, or null if the file is missing or not a valid snapshot.
+     */
+    public static Map<String, Object> read(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE + CHECKSUM_SIZE) {
+            return null;
+        }
+
+        RandomAccessFile randomAccessFile = null;
+
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return decode(buffer);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    // Ignore.
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a snapshot from a buffer positioned at its start.
+     *
+     * @return the values, or null if the buffer does not hold a valid snapshot.
+     */
+    public static Map<String, Object> decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int checksumOffset = buffer.limit() - CHECKSUM_SIZE;
+
+        if (checksumOffset - start < HEADER_SIZE) {
+            return null;
+        }
+
+        // Verify the checksum before trusting any lengths. CRC32 only takes arrays on this API level, so the content is
+        // copied out in chunks rather than all at once.
+        byte[] chunk = new byte[Math.min(CHECKSUM_CHUNK_SIZE, checksumOffset - start)];
+        CRC32 crc = new CRC32();
+        while (buffer.position() < checksumOffset) {
+            int length = Math.min(chunk.length, checksumOffset - buffer.position());
+            buffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        if (buffer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+
+        buffer.position(start);
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            int entryCount = buffer.getInt();
+            if (entryCount < 0) {
+                return null;
+            }
+
+            Map<String, Object> values = new HashMap<>(entryCount * 2);
+
+            for (int i = 0; i < entryCount; i++) {
+                String key = readString(buffer);
+                byte type = buffer.get();
+
+                switch (type) {
+                    case TYPE_INT:
+                        values.put(key, buffer.getInt());
+                        break;
+                    case TYPE_LONG:
+                        values.put(key, buffer.getLong());
+                        break;
+                    case TYPE_BOOLEAN:
+                        values.put(key, buffer.get() != 0);
+                        break;
+                    case TYPE_STRING:
+                        values.put(key, readString(buffer));
+                        break;
+                    default:
+                        return null;
+                }
+            }
+
+            return buffer.position() == checksumOffset ? values : null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the boolean value of the key in a snapshot, or the default if it is missing or not a boolean.
+     */
+    public static boolean getBoolean(Map<String, ?> values, String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Write a snapshot of the values. Values of unsupported types are left out.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(File file, Map<String, ?> values) throws IOException {
+        byte[] bytes = encode(values);
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+
+        try {
+            outputStream.write(bytes);
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Failed to rename " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Encode a snapshot of the values. Values of unsupported types are left out.
+     */
+    public static byte[] encode(Map<String, ?> values) {
+        int size = HEADER_SIZE + CHECKSUM_SIZE;
+        int entryCount = 0;
+
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            int valueSize = getValueSize(entry.getValue());
+
+            if (valueSize >= 0) {
+                size += 2 + entry.getKey().getBytes(UTF_8).length + 1 + valueSize;
+                entryCount++;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(entryCount);
+
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            Object value = entry.getValue();
+
+            if (getValueSize(value) < 0) {
+                continue;
+            }
+
+            writeString(buffer, entry.getKey());
+
+            if (value instanceof Integer) {
+                buffer.put(TYPE_INT);
+                buffer.putInt((Integer) value);
+            } else if (value instanceof Long) {
+                buffer.put(TYPE_LONG);
+                buffer.putLong((Long) value);
+            } else if (value instanceof Boolean) {
+                buffer.put(TYPE_BOOLEAN);
+                buffer.put((byte) ((Boolean) value ? 1 : 0));
+            } else {
+                buffer.put(TYPE_STRING);
+                writeString(buffer, (String) value);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        return buffer.array();
+    }
+
+    /**
+     * @return the encoded size of a value, or -1 if the type is not supported.
+     */
+    private static int getValueSize(Object value) {
+        if (value instanceof Integer) {
+            return 4;
+        } else if (value instanceof Long) {
+            return 8;
+        } else if (value instanceof Boolean) {
+            return 1;
+        } else if (value instanceof String) {
+            int length = ((String) value).getBytes(UTF_8).length;
+            return length <= 0xFFFF ? 2 + length : -1;
+        }
+        return -1;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for snapshot: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
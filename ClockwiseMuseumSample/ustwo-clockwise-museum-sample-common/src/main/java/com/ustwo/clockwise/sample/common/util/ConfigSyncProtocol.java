@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds and applies versioned config payloads. This is the transport independent part of the config sync, shared
+ * by {@link ConfigSyncState} on devices and by the in-memory nodes of the sync load harness in the benchmarks module.
+ * <p/>
+ * A payload is a map holding the changed values under {@link #KEY_PREFS}, their versions under {@link #KEY_VERSIONS},
+ * the sender's origin under {@link #KEY_ORIGIN} and the highest version the sender has received from the receiver
+ * under {@link #KEY_ACK}. Nested maps correspond to nested DataMaps on the data layer.
+ * <p/>
+ * Acknowledgements normally travel with local changes. A device which only receives sends
+ * {@link #writeAcknowledgement(ConfigVersionTracker, ValueSource)} after applying versioned changes, so the peer
+ * stops resending them.
+ * <p/>
+ * Has no Android dependencies.
+ */
+public class ConfigSyncProtocol {
+
+    /** Payload key for the map of changed values. */
+    public static final String KEY_PREFS = "prefs";
+
+    /** Payload key for the map of versions of the changed values. */
+    public static final String KEY_VERSIONS = "versions";
+
+    /** Payload key for the origin name of the sender. */
+    public static final String KEY_ORIGIN = "origin";
+
+    /** Payload key for the highest version the sender has received from the receiver. */
+    public static final String KEY_ACK = "ack";
+
+    /**
+     * Source of the current local config values.
+     */
+    public interface ValueSource {
+        /**
+         * @return the value of the key, or null if it has none.
+         */
+        Object get(String key);
+    }
+
+    private ConfigSyncProtocol() {
+    }
+
+    /**
+     * Build a payload of all local changes the peer has not acknowledged.
+     *
+     * @return the payload, or null if there is nothing to send.
+     */
+    public static Map<String, Object> writeLocalChanges(ConfigVersionTracker tracker, ValueSource values) {
+        Map<String, Object> prefs = new LinkedHashMap<>();
+        Map<String, Object> versions = new LinkedHashMap<>();
+
+        for (String key : tracker.getUnacknowledgedLocalChanges()) {
+            Object value = values.get(key);
+
+            if (value != null) {
+                prefs.put(key, value);
+                versions.put(key, tracker.getVersion(key));
+            }
+        }
+
+        if (prefs.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put(KEY_PREFS, prefs);
+        payload.put(KEY_VERSIONS, versions);
+        payload.put(KEY_ORIGIN, tracker.getLocalOrigin());
+        payload.put(KEY_ACK, tracker.getRemoteVersion());
+        return payload;
+    }
+
+    /**
+     * Build the payload sent after applying a payload with versioned changes from the peer: our acknowledgement of
+     * them, along with any local changes the peer has not acknowledged. It is put on the same path as local changes
+     * and replaces any earlier, undelivered payload there, so it carries those changes too.
+     *
+     * @return the payload. It has no {@link #KEY_PREFS} if there are no local changes to send.
+     */
+    public static Map<String, Object> writeAcknowledgement(ConfigVersionTracker tracker, ValueSource values) {
+        Map<String, Object> payload = writeLocalChanges(tracker, values);
+
+        if (payload == null) {
+            payload = new LinkedHashMap<>();
+            payload.put(KEY_ORIGIN, tracker.getLocalOrigin());
+            payload.put(KEY_ACK, tracker.getRemoteVersion());
+        }
+
+        return payload;
+    }
+
+    /**
+     * @return true if the payload carries versioned changes, which the receiver has to acknowledge. Payloads which
+     * only carry an acknowledgement are not acknowledged, so acknowledgements never bounce between the devices.
+     */
+    public static boolean needsAcknowledgement(Map<String, Object> payload) {
+        Object prefs = payload.get(KEY_PREFS);
+        return payload.get(KEY_ORIGIN) instanceof String && prefs instanceof Map && !((Map<?, ?>) prefs).isEmpty();
+    }
+
+    /**
+     * Offer a received payload to the tracker. Keys whose version loses against the version held locally are left
+     * out of the result. Payloads without an origin, from an older peer, are accepted as they are. The peer's
+     * acknowledgement is applied whether or not the payload carries changes.
+     *
+     * @return the values to store, in payload order. Empty if nothing should change.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> applyRemoteChanges(ConfigVersionTracker tracker, Map<String, Object> payload) {
+        Map<String, Object> accepted = new LinkedHashMap<>();
+        Object prefsObject = payload.get(KEY_PREFS);
+        Object origin = payload.get(KEY_ORIGIN);
+
+        if (!(origin instanceof String)) {
+            if (prefsObject instanceof Map) {
+                accepted.putAll((Map<String, Object>) prefsObject);
+            }
+            return accepted;
+        }
+
+        Object ack = payload.get(KEY_ACK);
+        if (ack instanceof Long) {
+            tracker.onPeerAck((Long) ack);
+        }
+
+        if (!(prefsObject instanceof Map)) {
+            return accepted;
+        }
+
+        Map<String, Object> prefs = (Map<String, Object>) prefsObject;
+
+        Object versionsObject = payload.get(KEY_VERSIONS);
+        Map<String, Object> versions = versionsObject instanceof Map ? (Map<String, Object>) versionsObject : null;
+
+        for (Map.Entry<String, Object> entry : prefs.entrySet()) {
+            Object version = versions != null ? versions.get(entry.getKey()) : null;
+            long versionValue = version instanceof Long ? (Long) version : 0;
+
+            if (tracker.applyRemoteChange(entry.getKey(), versionValue, (String) origin)) {
+                accepted.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return accepted;
+    }
+}
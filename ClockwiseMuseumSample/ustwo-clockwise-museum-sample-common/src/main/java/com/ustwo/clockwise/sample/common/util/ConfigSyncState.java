@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import android.content.SharedPreferences;
+
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists a {@link ConfigVersionTracker} in SharedPreferences and reads and writes versioned config payloads.
+ * <p/>
+ * The versions are kept in their own preferences file, separate from the preference values, so that version updates
+ * do not notify listeners of the values. The versions are read from that file once per process and then kept in
+ * memory; each operation writes back only the keys it changed. Both stores are written through
+ * {@link PreferenceWriter}, so nothing here blocks on disk.
+ */
+public class ConfigSyncState {
+
+    private static final String KEY_PREFIX_VERSION = "version:";
+    private static final String KEY_PREFIX_ORIGIN = "origin:";
+    private static final String KEY_CLOCK = "sync:clock";
+    private static final String KEY_PEER_ACK_VERSION = "sync:peer_ack_version";
+    private static final String KEY_REMOTE_VERSION = "sync:remote_version";
+    private static final String KEY_MERGED_REMOTE_VERSION = "sync:merged_remote_version";
+
+    /** Guards the version preferences, which may be shared by several components of the same app. */
+    private static final Object sLock = new Object();
+
+    /** Trackers loaded so far, one per version preferences file. Guarded by {@link #sLock}. */
+    private static final Map<SharedPreferences, ConfigVersionTracker> sTrackers = new HashMap<>();
+
+    private final SharedPreferences mVersionPrefs;
+    private final SharedPreferences mValuePrefs;
+    private final String mLocalOrigin;
+
+    private final ConfigSyncProtocol.ValueSource mValueSource = new ConfigSyncProtocol.ValueSource() {
+        @Override
+        public Object get(String key) {
+            return SharedPreferencesUtil.getObject(mValuePrefs, key);
+        }
+    };
+
+    /**
+     * @param versionPrefs preferences holding the versions, normally {@link SharedPreferencesUtil#PREFS_CONFIG_VERSIONS}
+     * @param valuePrefs   preferences holding the config values
+     * @param localOrigin  name of this device, {@link SharedPreferencesUtil#CONFIG_ORIGIN_COMPANION} or
+     *                     {@link SharedPreferencesUtil#CONFIG_ORIGIN_WEARABLE}
+     */
+    public ConfigSyncState(SharedPreferences versionPrefs, SharedPreferences valuePrefs, String localOrigin) {
+        mVersionPrefs = versionPrefs;
+        mValuePrefs = valuePrefs;
+        mLocalOrigin = localOrigin;
+    }
+
+    /**
+     * Record changes to config values made on this device. Call this after the values have been stored. The versions
+     * are written back once for all the keys, so record a batch of changes together rather than one key at a time.
+     */
+    public void recordLocalChanges(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        synchronized (sLock) {
+            ConfigVersionTracker tracker = getTracker();
+            PreferenceWriter writer = PreferenceWriter.get(mVersionPrefs);
+
+            for (String key : keys) {
+                tracker.recordLocalChange(key);
+                putVersion(writer, tracker, key);
+            }
+
+            putState(writer, tracker);
+            writer.flush();
+        }
+    }
+
+    /**
+     * Write all local changes the peer has not acknowledged into a data map, along with their versions and our own
+     * acknowledgement of the peer's changes.
+     *
+     * @return true if there was anything to send.
+     */
+    public boolean writeLocalChanges(DataMap dataMap) {
+        synchronized (sLock) {
+            Map<String, Object> payload = ConfigSyncProtocol.writeLocalChanges(getTracker(), mValueSource);
+
+            if (payload == null) {
+                return false;
+            }
+
+            DataMapUtil.putAll(dataMap, payload);
+            return true;
+        }
+    }
+
+    /**
+     * Write our acknowledgement of a payload received from the peer, after it has been applied with
+     * {@link #applyRemoteChanges(DataMap)}. Put it on the path local changes are sent on; it also carries any local
+     * changes the peer has not acknowledged.
+     *
+     * @param received        the payload received from the peer
+     * @param acknowledgement data map to write the acknowledgement into
+     * @return true if the received payload has to be acknowledged. Payloads which only acknowledge our changes, or
+     * carry no versions, are not.
+     */
+    public boolean writeAcknowledgement(DataMap received, DataMap acknowledgement) {
+        if (!ConfigSyncProtocol.needsAcknowledgement(DataMapUtil.toMap(received))) {
+            return false;
+        }
+
+        synchronized (sLock) {
+            DataMapUtil.putAll(acknowledgement, ConfigSyncProtocol.writeAcknowledgement(getTracker(), mValueSource));
+            return true;
+        }
+    }
+
+    /**
+     * Apply a payload received from the peer to the value preferences. Keys whose version loses against the version
+     * held locally are ignored. Payloads without versions, from an older peer, are applied as they are.
+     *
+     * @return the number of values applied.
+     */
+    public int applyRemoteChanges(DataMap dataMap) {
+        Map<String, Object> payload = DataMapUtil.toMap(dataMap);
+
+        synchronized (sLock) {
+            ConfigVersionTracker tracker = getTracker();
+            Map<String, Object> accepted = ConfigSyncProtocol.applyRemoteChanges(tracker, payload);
+            PreferenceWriter valueWriter = PreferenceWriter.get(mValuePrefs);
+            PreferenceWriter versionWriter = PreferenceWriter.get(mVersionPrefs);
+
+            for (Map.Entry<String, Object> entry : accepted.entrySet()) {
+                valueWriter.put(entry.getKey(), entry.getValue());
+
+                if (tracker.getOrigin(entry.getKey()) != null) {
+                    putVersion(versionWriter, tracker, entry.getKey());
+                }
+            }
+
+            putState(versionWriter, tracker);
+
+            valueWriter.flush();
+            versionWriter.flush();
+
+            return accepted.size();
+        }
+    }
+
+    /**
+     * @return keys changed by the peer since {@link #markRemoteChangesMerged()} was last called, or null if no
+     * versions have been recorded yet and the caller should fall back to copying everything.
+     */
+    public List<String> getUnmergedRemoteChanges() {
+        synchronized (sLock) {
+            ConfigVersionTracker tracker = getTracker();
+
+            if (tracker.getClock() == 0) {
+                return null;
+            }
+
+            return tracker.getRemoteChangesSince(mVersionPrefs.getLong(KEY_MERGED_REMOTE_VERSION, 0));
+        }
+    }
+
+    /**
+     * Record that all changes received from the peer so far have been merged.
+     */
+    public void markRemoteChangesMerged() {
+        synchronized (sLock) {
+            PreferenceWriter.get(mVersionPrefs).put(KEY_MERGED_REMOTE_VERSION, getTracker().getRemoteVersion()).flush();
+        }
+    }
+
+    /**
+     * @return the tracker for the version preferences, loading it on first use. Must be called holding {@link #sLock}.
+     */
+    private ConfigVersionTracker getTracker() {
+        ConfigVersionTracker tracker = sTrackers.get(mVersionPrefs);
+
+        if (tracker == null) {
+            tracker = load();
+            sTrackers.put(mVersionPrefs, tracker);
+        }
+
+        return tracker;
+    }
+
+    private ConfigVersionTracker load() {
+        ConfigVersionTracker tracker = new ConfigVersionTracker(mLocalOrigin);
+        Map<String, ?> entries = mVersionPrefs.getAll();
+        List<String> keys = new ArrayList<>();
+
+        for (String prefKey : entries.keySet()) {
+            if (prefKey.startsWith(KEY_PREFIX_VERSION)) {
+                keys.add(prefKey.substring(KEY_PREFIX_VERSION.length()));
+            }
+        }
+
+        for (String key : keys) {
+            Object version = entries.get(KEY_PREFIX_VERSION + key);
+            Object origin = entries.get(KEY_PREFIX_ORIGIN + key);
+
+            if (version instanceof Long && origin instanceof String) {
+                tracker.restoreVersion(key, (Long) version, (String) origin);
+            }
+        }
+
+        tracker.restoreState(mVersionPrefs.getLong(KEY_CLOCK, 0), mVersionPrefs.getLong(KEY_PEER_ACK_VERSION, 0),
+                mVersionPrefs.getLong(KEY_REMOTE_VERSION, 0));
+
+        return tracker;
+    }
+
+    private static void putVersion(PreferenceWriter writer, ConfigVersionTracker tracker, String key) {
+        writer.put(KEY_PREFIX_VERSION + key, tracker.getVersion(key));
+        writer.put(KEY_PREFIX_ORIGIN + key, tracker.getOrigin(key));
+    }
+
+    private static void putState(PreferenceWriter writer, ConfigVersionTracker tracker) {
+        writer.put(KEY_CLOCK, tracker.getClock());
+        writer.put(KEY_PEER_ACK_VERSION, tracker.getPeerAckVersion());
+        writer.put(KEY_REMOTE_VERSION, tracker.getRemoteVersion());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks logical versions of config keys so that two devices can exchange only the keys which changed and agree on
+ * the winner when both change the same key.
+ * <p/>
+ * Each device keeps a Lamport clock. A local change takes the next clock value as its version. A received change is
+ * accepted if its version is higher than the version held for the key, with ties broken by comparing the origin
+ * names, so both devices resolve a conflict the same way without comparing wall clocks.
+ * <p/>
+ * Each device also remembers the highest version it has received from its peer and sends it back as an
+ * acknowledgement. Only local changes newer than the peer's last acknowledgement need to be sent.
+ * <p/>
+ * This class holds no values and has no Android dependencies; see {@link ConfigSyncState} for the persisted form.
+ */
+public class ConfigVersionTracker {
+
+    private final String mLocalOrigin;
+
+    private final Map<String, Long> mVersions = new HashMap<>();
+    private final Map<String, String> mOrigins = new HashMap<>();
+
+    /** Lamport clock, the highest version seen from either device. */
+    private long mClock;
+
+    /** Highest local version the peer has acknowledged. */
+    private long mPeerAckVersion;
+
+    /** Highest version received from the peer, sent back as our acknowledgement. */
+    private long mRemoteVersion;
+
+    public ConfigVersionTracker(String localOrigin) {
+        mLocalOrigin = localOrigin;
+    }
+
+    /**
+     * Compares two versions of the same key.
+     *
+     * @return a positive value if the first version wins, negative if the second wins, 0 if they are the same change.
+     */
+    public static int compareVersions(long version1, String origin1, long version2, String origin2) {
+        if (version1 != version2) {
+            return version1 > version2 ? 1 : -1;
+        }
+
+        if (origin1 == null) {
+            return origin2 == null ? 0 : -1;
+        }
+
+        return origin2 == null ? 1 : origin1.compareTo(origin2);
+    }
+
+    /**
+     * Restore the version of a key, e.g. when loading persisted state.
+     */
+    public void restoreVersion(String key, long version, String origin) {
+        mVersions.put(key, version);
+        mOrigins.put(key, origin);
+        mClock = Math.max(mClock, version);
+    }
+
+    /**
+     * Restore the clock and acknowledgement state, e.g. when loading persisted state.
+     */
+    public void restoreState(long clock, long peerAckVersion, long remoteVersion) {
+        mClock = Math.max(mClock, clock);
+        mPeerAckVersion = peerAckVersion;
+        mRemoteVersion = remoteVersion;
+    }
+
+    /**
+     * Record a change made on this device.
+     *
+     * @return the version assigned to the change.
+     */
+    public long recordLocalChange(String key) {
+        mClock++;
+        mVersions.put(key, mClock);
+        mOrigins.put(key, mLocalOrigin);
+        return mClock;
+    }
+
+    /**
+     * Offer a change received from the peer.
+     *
+     * @return true if the change wins over the version held for the key and should be applied.
+     */
+    public boolean applyRemoteChange(String key, long version, String origin) {
+        mClock = Math.max(mClock, version);
+        if (!mLocalOrigin.equals(origin)) {
+            mRemoteVersion = Math.max(mRemoteVersion, version);
+        }
+
+        if (compareVersions(version, origin, getVersion(key), getOrigin(key)) > 0) {
+            mVersions.put(key, version);
+            mOrigins.put(key, origin);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Record that the peer has received all our changes up to and including the given version.
+     */
+    public void onPeerAck(long version) {
+        mPeerAckVersion = Math.max(mPeerAckVersion, Math.min(version, mClock));
+    }
+
+    /**
+     * @return keys changed on this device which the peer has not acknowledged, oldest first.
+     */
+    public List<String> getUnacknowledgedLocalChanges() {
+        return getChangesSince(mPeerAckVersion, true);
+    }
+
+    /**
+     * @return keys last changed by the peer with a version above the given one, oldest first.
+     */
+    public List<String> getRemoteChangesSince(long version) {
+        return getChangesSince(version, false);
+    }
+
+    private List<String> getChangesSince(long version, boolean local) {
+        List<String> keys = new ArrayList<>();
+
+        for (Map.Entry<String, Long> entry : mVersions.entrySet()) {
+            if (entry.getValue() > version && local == mLocalOrigin.equals(mOrigins.get(entry.getKey()))) {
+                keys.add(entry.getKey());
+            }
+        }
+
+        Collections.sort(keys, new Comparator<String>() {
+            @Override
+            public int compare(String lhs, String rhs) {
+                return compareVersions(getVersion(lhs), getOrigin(lhs), getVersion(rhs), getOrigin(rhs));
+            }
+        });
+
+        return keys;
+    }
+
+    /**
+     * @return the version of the key, or 0 if it has never been changed.
+     */
+    public long getVersion(String key) {
+        Long version = mVersions.get(key);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * @return the origin of the latest change to the key, or null if it has never been changed.
+     */
+    public String getOrigin(String key) {
+        return mOrigins.get(key);
+    }
+
+    public Set<String> getKeys() {
+        return mVersions.keySet();
+    }
+
+    public String getLocalOrigin() {
+        return mLocalOrigin;
+    }
+
+    public long getClock() {
+        return mClock;
+    }
+
+    public long getPeerAckVersion() {
+        return mPeerAckVersion;
+    }
+
+    public long getRemoteVersion() {
+        return mRemoteVersion;
+    }
+}
@@ -25,6 +25,9 @@ package com.ustwo.clockwise.sample.common.util;
 
 import com.google.android.gms.wearable.DataMap;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Utils for working with DataMaps.
  *
@@ -35,7 +38,7 @@ public class DataMapUtil {
     /**
      * Put an object into a DataMap based on the object type.
      * <p/>
-     * Currently supports String, int and boolean.
+     * Currently supports String, int, long and boolean.
      *
      * @param dataMap
      * @param key
@@ -46,6 +49,9 @@ public class DataMapUtil {
         if (value instanceof Integer) {
             int intValue = ((Integer) value).intValue();
             dataMap.putInt(key, intValue);
+        } else if (value instanceof Long) {
+            long longValue = ((Long) value).longValue();
+            dataMap.putLong(key, longValue);
         } else if (value instanceof  String) {
             String stringValue = value.toString();
             dataMap.putString(key, stringValue);
@@ -57,4 +63,41 @@ public class DataMapUtil {
                     "Preference " + value + " of type " + value.getClass() + " is not supported");
         }
     }
+
+    /**
+     * Put all entries of a map into a DataMap. Nested maps become nested DataMaps.
+     *
+     * @param dataMap
+     * @param values values of the types supported by {@link #putObject(DataMap, String, Object)}, or nested maps.
+     * @throws IllegalArgumentException if a value type is not supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static void putAll(DataMap dataMap, Map<String, ?> values) {
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                DataMap nestedDataMap = new DataMap();
+                putAll(nestedDataMap, (Map<String, ?>) entry.getValue());
+                dataMap.putDataMap(entry.getKey(), nestedDataMap);
+            } else {
+                putObject(dataMap, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Copy a DataMap into a map. Nested DataMaps become nested maps.
+     *
+     * @param dataMap
+     * @return the entries, in no particular order.
+     */
+    public static Map<String, Object> toMap(DataMap dataMap) {
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (String key : dataMap.keySet()) {
+            Object value = dataMap.get(key);
+            values.put(key, value instanceof DataMap ? toMap((DataMap) value) : value);
+        }
+
+        return values;
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Known preference keys and their types, so single values can be read directly from SharedPreferences without
+ * copying the whole map with {@link SharedPreferences#getAll()}.
+ * <p/>
+ * Supports the same types as {@link SharedPreferencesUtil#putObject(SharedPreferences.Editor, String, Object)}.
+ */
+public class PreferenceSchema {
+
+    private final Map<String, Class<?>> mTypes = new HashMap<>();
+
+    /**
+     * Add a key to the schema.
+     *
+     * @param key
+     * @param type Integer, Long, String or Boolean
+     * @return this schema, for chaining.
+     * @throws IllegalArgumentException if the type is not supported.
+     */
+    public PreferenceSchema add(String key, Class<?> type) {
+        if (type != Integer.class && type != Long.class && type != String.class && type != Boolean.class) {
+            throw new IllegalArgumentException("Preference " + key + " of type " + type + " is not supported");
+        }
+
+        mTypes.put(key, type);
+        return this;
+    }
+
+    /**
+     * @return the type of the key, or null if the key is not in the schema.
+     */
+    public Class<?> getType(String key) {
+        return mTypes.get(key);
+    }
+
+    public boolean contains(String key) {
+        return mTypes.containsKey(key);
+    }
+
+    /**
+     * Reads a value as an object. Keys in the schema are read directly with the typed getter; other keys fall back to
+     * {@link SharedPreferencesUtil#getObject(SharedPreferences, String)}.
+     *
+     * @param prefs
+     * @param key
+     * @return the value as an object or null if none could be found.
+     */
+    public Object read(SharedPreferences prefs, String key) {
+        Class<?> type = mTypes.get(key);
+
+        if (type == null) {
+            return SharedPreferencesUtil.getObject(prefs, key);
+        }
+
+        if (!prefs.contains(key)) {
+            return null;
+        }
+
+        if (type == Integer.class) {
+            return prefs.getInt(key, 0);
+        } else if (type == Long.class) {
+            return prefs.getLong(key, 0);
+        } else if (type == Boolean.class) {
+            return prefs.getBoolean(key, false);
+        } else {
+            return prefs.getString(key, null);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batches writes to a SharedPreferences store and persists them without blocking the calling thread.
+ * <p/>
+ * Values passed to {@link #put(String, Object)} are held until {@link #flush()}, which applies them all in one
+ * {@link SharedPreferences.Editor#apply()}: they are visible to readers and listeners straight away and written to
+ * disk in the background. Callers which need to know when the write is durable can use
+ * {@link #flush(OnWriteCompleteListener)}. {@link #flushSync()} commits on the calling thread, for use on shutdown.
+ * <p/>
+ * There is one writer per store, so writes from different components of the same process are batched together.
+ * <p/>
+ * If a snapshot file is set with {@link #setSnapshotFile(File)}, a {@link ConfigSnapshot} of the store is rewritten in
+ * the background after every flush. Snapshots are only ever written on the background thread, so two writes never
+ * share the temporary file.
+ */
+public class PreferenceWriter {
+
+    /**
+     * Notified on the main thread once a flush has reached disk.
+     */
+    public interface OnWriteCompleteListener {
+        void onWriteComplete(boolean success);
+    }
+
+    /** Pending marker for a removed key. */
+    private static final Object REMOVED = new Object();
+
+    private static final Map<SharedPreferences, PreferenceWriter> sWriters = new WeakHashMap<>();
+
+    private static final String TAG = PreferenceWriter.class.getSimpleName();
+
+    /** Waits for writes to reach disk before notifying listeners, and writes snapshots. */
+    private static final ExecutorService sBackgroundExecutor = Executors.newSingleThreadExecutor();
+
+    private static Handler sMainHandler;
+
+    private final SharedPreferences mPrefs;
+
+    private volatile File mSnapshotFile;
+
+    /** Values waiting for the next flush, in the order they were first written. Guarded by this. */
+    private final Map<String, Object> mPendingValues = new LinkedHashMap<>();
+
+    private PreferenceWriter(SharedPreferences prefs) {
+        mPrefs = prefs;
+    }
+
+    /**
+     * @return the writer for the store.
+     */
+    public static PreferenceWriter get(SharedPreferences prefs) {
+        synchronized (sWriters) {
+            PreferenceWriter writer = sWriters.get(prefs);
+
+            if (writer == null) {
+                writer = new PreferenceWriter(prefs);
+                sWriters.put(prefs, writer);
+            }
+
+            return writer;
+        }
+    }
+
+    /**
+     * Synchronously commit pending writes of every store. Call this on shutdown.
+     */
+    public static void flushAllSync() {
+        List<PreferenceWriter> writers;
+
+        synchronized (sWriters) {
+            writers = new ArrayList<>(sWriters.values());
+        }
+
+        for (PreferenceWriter writer : writers) {
+            writer.flushSync();
+        }
+    }
+
+    /**
+     * Keep a {@link ConfigSnapshot} of this store in the given file, rewritten after every flush.
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        mSnapshotFile = snapshotFile;
+    }
+
+    /**
+     * Rewrite the snapshot file in the background, if one is set.
+     */
+    public void writeSnapshot() {
+        submitSnapshotWrite();
+    }
+
+    /**
+     * @return the pending snapshot write, or null if no snapshot file is set.
+     */
+    private Future<?> submitSnapshotWrite() {
+        if (mSnapshotFile == null) {
+            return null;
+        }
+
+        return sBackgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeSnapshotNow();
+            }
+        });
+    }
+
+    private void writeSnapshotNow() {
+        File snapshotFile = mSnapshotFile;
+
+        if (snapshotFile != null) {
+            try {
+                ConfigSnapshot.write(snapshotFile, mPrefs.getAll());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write config snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue a value to be written on the next flush. A later value for the same key replaces an earlier one.
+     *
+     * @param key
+     * @param value an Integer, Long, String or Boolean
+     * @return this writer, for chaining.
+     */
+    public synchronized PreferenceWriter put(String key, Object value) {
+        mPendingValues.put(key, value);
+        return this;
+    }
+
+    /**
+     * Queue a key to be removed on the next flush.
+     */
+    public synchronized PreferenceWriter remove(String key) {
+        mPendingValues.put(key, REMOVED);
+        return this;
+    }
+
+    /**
+     * @return true if there are writes waiting for a flush.
+     */
+    public synchronized boolean hasPendingWrites() {
+        return !mPendingValues.isEmpty();
+    }
+
+    /**
+     * Apply pending writes. They are visible immediately and written to disk in the background.
+     */
+    public void flush() {
+        SharedPreferences.Editor editor = takePendingWrites();
+
+        if (editor != null) {
+            editor.apply();
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Apply pending writes and notify the listener once they are on disk.
+     */
+    public void flush(final OnWriteCompleteListener listener) {
+        flush();
+
+        sBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Commits are written in order after earlier applies to the same store, so once this empty commit
+                // returns the applied values are on disk.
+                final boolean success = mPrefs.edit().commit();
+
+                getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onWriteComplete(success);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Commit pending writes on the calling thread. Blocks until they and the snapshot, if one is set, are on disk.
+     *
+     * @return true if the write succeeded or there was nothing to write.
+     */
+    public boolean flushSync() {
+        SharedPreferences.Editor editor = takePendingWrites();
+
+        if (editor == null) {
+            return true;
+        }
+
+        boolean success = editor.commit();
+        Future<?> snapshotWrite = submitSnapshotWrite();
+
+        if (snapshotWrite != null) {
+            try {
+                snapshotWrite.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Failed to write config snapshot: " + e.getCause());
+            }
+        }
+
+        return success;
+    }
+
+    private synchronized SharedPreferences.Editor takePendingWrites() {
+        if (mPendingValues.isEmpty()) {
+            return null;
+        }
+
+        SharedPreferences.Editor editor = mPrefs.edit();
+
+        for (Map.Entry<String, Object> entry : mPendingValues.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                editor.remove(entry.getKey());
+            } else {
+                SharedPreferencesUtil.putObject(editor, entry.getKey(), entry.getValue());
+            }
+        }
+
+        mPendingValues.clear();
+        return editor;
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (sMainHandler == null) {
+            sMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return sMainHandler;
+    }
+}
@@ -23,9 +23,10 @@
  */
 package com.ustwo.clockwise.sample.common.util;
 
+import android.content.Context;
 import android.content.SharedPreferences;
 
-import java.util.Map;
+import java.io.File;
 
 /**
  * Utils for working with SharedPreferences.
@@ -52,41 +53,143 @@ public class SharedPreferencesUtil {
      */
     public static final String DATA_PATH_DATA_UPDATE_REQUEST = "/data_update_request/";
 
+    /**
+     * Path endpoint on which a wearable publishes its display dimensions, used by the companion to prepare images at
+     * the size they are drawn at. Each wearable publishes its own data item.
+     */
+    public static final String DATA_PATH_DISPLAY_CAPABILITY = "/capability/display";
+
+    /**
+     * Path endpoint prefix for background images prepared by the companion. The circle diameter in pixels is appended,
+     * e.g. /background_image/280
+     */
+    public static final String DATA_PATH_BACKGROUND_IMAGE = "/background_image/";
+
+    /**
+     * DataMap key for the diameter in pixels of the watch face circle
+     */
+    public static final String DATA_KEY_CIRCLE_DIAMETER = "circle_diameter";
+
+    /**
+     * DataMap key for a background image asset
+     */
+    public static final String DATA_KEY_BACKGROUND_IMAGE = "background_image";
+
     /**
      * DataMap key for the preferences
      */
-    public static final String DATA_KEY_CONFIG_PREFS = "prefs";
+    public static final String DATA_KEY_CONFIG_PREFS = ConfigSyncProtocol.KEY_PREFS;
 
     /**
      * DataMap key for the unique timestamp
      */
     public static final String DATA_KEY_CONFIG_TIMESTAMP = "timestamp";
 
+    /**
+     * DataMap key for the logical version of each preference in {@link #DATA_KEY_CONFIG_PREFS}
+     */
+    public static final String DATA_KEY_CONFIG_VERSIONS = ConfigSyncProtocol.KEY_VERSIONS;
+
+    /**
+     * DataMap key for the name of the device which sent the preferences
+     */
+    public static final String DATA_KEY_CONFIG_ORIGIN = ConfigSyncProtocol.KEY_ORIGIN;
+
+    /**
+     * DataMap key for the highest version the sender has received from the receiver
+     */
+    public static final String DATA_KEY_CONFIG_ACK = ConfigSyncProtocol.KEY_ACK;
+
+    /**
+     * Origin name of config changes made on the companion
+     */
+    public static final String CONFIG_ORIGIN_COMPANION = "companion";
+
+    /**
+     * Origin name of config changes made on the wearable
+     */
+    public static final String CONFIG_ORIGIN_WEARABLE = "wearable";
+
+    /**
+     * Name of the SharedPreferences file holding the config versions. See {@link ConfigSyncState}.
+     */
+    public static final String PREFS_CONFIG_VERSIONS = "config_versions";
+
+    /**
+     * Name of the {@link ConfigSnapshot} file of the watch face config, in the app's files directory.
+     */
+    public static final String CONFIG_SNAPSHOT_FILE_NAME = "config_snapshot.bin";
+
+    /**
+     * @return the file holding the {@link ConfigSnapshot} of the watch face config.
+     */
+    public static File getConfigSnapshotFile(Context context) {
+        return new File(context.getFilesDir(), CONFIG_SNAPSHOT_FILE_NAME);
+    }
+
 
     /**
      * Gets a value mapped to the key from SharedPreferences as an object.
+     * <p/>
+     * Note, the type of the value is not known, so the typed getters are tried in turn until one does not throw a
+     * ClassCastException. Prefer {@link #getObject(SharedPreferences, PreferenceSchema, String)} for known keys.
      * @param prefs
      * @param key
      * @return the value as an object or null if none could be found.
      */
     public static Object getObject(SharedPreferences prefs, String key) {
-        Object value = null;
+        if (!prefs.contains(key)) {
+            return null;
+        }
+
+        try {
+            return prefs.getBoolean(key, false);
+        } catch (ClassCastException e) {
+            // Not a boolean, try the next type.
+        }
+
+        try {
+            return prefs.getString(key, null);
+        } catch (ClassCastException e) {
+            // Not a string, try the next type.
+        }
 
-        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
-            if (entry.getKey().equals(key)) {
-                value = entry.getValue();
-                break;
-            }
+        try {
+            return prefs.getInt(key, 0);
+        } catch (ClassCastException e) {
+            // Not an int, try the next type.
         }
 
-        return value;
+        try {
+            return prefs.getLong(key, 0);
+        } catch (ClassCastException e) {
+            // Not a long, try the next type.
+        }
+
+        try {
+            return prefs.getFloat(key, 0);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets a value mapped to the key from SharedPreferences as an object, reading it directly if the key is in the
+     * schema.
+     * @param prefs
+     * @param schema
+     * @param key
+     * @return the value as an object or null if none could be found.
+     */
+    public static Object getObject(SharedPreferences prefs, PreferenceSchema schema, String key) {
+        return schema.read(prefs, key);
     }
 
     /**
      * Put an object into SharedPreferences based on the object type. Note, you must call commit/apply on the editor
      * manually.
      * <p/>
-     * Currently supports String, int and boolean.
+     * Currently supports String, int, long and boolean.
      *
      * @param editor
      * @param key
@@ -97,6 +200,9 @@ public class SharedPreferencesUtil {
         if (value instanceof Integer) {
             int intValue = ((Integer) value).intValue();
             editor.putInt(key, intValue);
+        } else if (value instanceof Long) {
+            long longValue = ((Long) value).longValue();
+            editor.putLong(key, longValue);
         } else if (value instanceof  String) {
             String stringValue = value.toString();
             editor.putString(key, stringValue);
@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import com.ustwo.clockwise.sample.common.util.BitmapDecodeUtil;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Prepares a background image for a watch before it is sent, so the watch receives a small image at exactly the size
+ * it is drawn at instead of the original photo.
+ * <p/>
+ * The image is decoded straight to the circle diameter, cropped to the circle on a black background and compressed.
+ * It is not quantized to the 16 bit colour depth of some watch displays first: the JPEG would then encode the banding
+ * of the quantized gradients, and the watch dithers the full colour image better when it draws it.
+ */
+public class BackgroundImagePreprocessor {
+
+    /** Default JPEG quality. Watch displays are small enough that artifacts at this level are not visible. */
+    public static final int DEFAULT_QUALITY = 85;
+
+    private BackgroundImagePreprocessor() {
+    }
+
+    /**
+     * Prepares an image for a watch as a JPEG at {@link #DEFAULT_QUALITY}. Blocking, do not call from the UI thread.
+     *
+     * @param sourceImage    encoded source image
+     * @param circleDiameter diameter of the watch face circle in pixels
+     * @return the encoded image, or null if the source could not be decoded.
+     */
+    public static byte[] process(byte[] sourceImage, int circleDiameter) {
+        return process(sourceImage, circleDiameter, Bitmap.CompressFormat.JPEG, DEFAULT_QUALITY);
+    }
+
+    /**
+     * Prepares an image for a watch. Blocking, do not call from the UI thread.
+     *
+     * @param sourceImage    encoded source image
+     * @param circleDiameter diameter of the watch face circle in pixels
+     * @param format         format of the result
+     * @param quality        compression quality, 0-100, for lossy formats
+     * @return the encoded image, or null if the source could not be decoded.
+     */
+    public static byte[] process(byte[] sourceImage, int circleDiameter, Bitmap.CompressFormat format, int quality) {
+        Bitmap scaled = BitmapDecodeUtil.decodeCenterCrop(sourceImage, circleDiameter, circleDiameter);
+        if (scaled == null) {
+            return null;
+        }
+
+        Bitmap circle = cropToCircle(scaled);
+        scaled.recycle();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        circle.compress(format, quality, outputStream);
+        circle.recycle();
+
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @return a copy of a square bitmap with everything outside the inscribed circle black, matching the watch face
+     * background, so those pixels compress to almost nothing.
+     */
+    private static Bitmap cropToCircle(Bitmap source) {
+        int diameter = source.getWidth();
+        float radius = diameter * 0.5f;
+
+        Bitmap circle = Bitmap.createBitmap(diameter, diameter, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(circle);
+        canvas.drawColor(Color.BLACK);
+
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        canvas.drawCircle(radius, radius, radius, paint);
+
+        return circle;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.sample.common.WearableAPIHelper;
+import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sends a background image to the connected watches, prepared by {@link BackgroundImagePreprocessor} at the circle
+ * diameter each watch published.
+ * <p/>
+ * One data item is put per distinct diameter, at {@link SharedPreferencesUtil#DATA_PATH_BACKGROUND_IMAGE} followed
+ * by the diameter, so watches of the same size share a transfer and each watch reads the item for its own size.
+ */
+public class BackgroundImageSender {
+
+    private static final String TAG = BackgroundImageSender.class.getSimpleName();
+
+    /**
+     * Circle diameters published by the watches, by node id. Updated by {@link WearableConfigListenerService}.
+     */
+    protected static final String PREFS_WATCH_DISPLAYS = "watch_displays";
+
+    /**
+     * Time each watch in {@link #PREFS_WATCH_DISPLAYS} was last seen, by node id. Updated by
+     * {@link WearableConfigListenerService}, which forgets watches not seen for {@link #WATCH_DISPLAY_EXPIRY_MS}.
+     */
+    protected static final String PREFS_WATCH_LAST_SEEN = "watch_last_seen";
+
+    /** Time after which a watch which has not connected is assumed to be unpaired, in milliseconds. */
+    protected static final long WATCH_DISPLAY_EXPIRY_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private final Context mContext;
+    private final WearableAPIHelper mWearableAPIHelper;
+
+    public BackgroundImageSender(Context context, WearableAPIHelper wearableAPIHelper) {
+        mContext = context;
+        mWearableAPIHelper = wearableAPIHelper;
+    }
+
+    /**
+     * Prepares and sends an image to every watch which has published its display size. Blocking, do not call from
+     * the UI thread.
+     *
+     * @param sourceImage encoded source image
+     * @return the number of sizes the image was sent at.
+     */
+    public int send(byte[] sourceImage) {
+        int sentCount = 0;
+
+        for (int diameter : getCircleDiameters()) {
+            byte[] image = BackgroundImagePreprocessor.process(sourceImage, diameter);
+
+            if (image == null) {
+                Log.e(TAG, "Failed to prepare background image");
+                return sentCount;
+            }
+
+            Log.v(TAG, "Sending " + image.length + " byte background image at " + diameter + "px, source was "
+                    + sourceImage.length + " bytes");
+
+            DataMap dataMap = new DataMap();
+            dataMap.putAsset(SharedPreferencesUtil.DATA_KEY_BACKGROUND_IMAGE, Asset.createFromBytes(image));
+            mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_BACKGROUND_IMAGE + diameter, dataMap, null);
+            sentCount++;
+        }
+
+        return sentCount;
+    }
+
+    /**
+     * @return the distinct circle diameters published by the watches.
+     */
+    public Set<Integer> getCircleDiameters() {
+        Set<Integer> diameters = new HashSet<>();
+        SharedPreferences prefs = mContext.getSharedPreferences(PREFS_WATCH_DISPLAYS, Context.MODE_PRIVATE);
+
+        for (Object value : prefs.getAll().values()) {
+            if (value instanceof Integer && (Integer) value > 0) {
+                diameters.add((Integer) value);
+            }
+        }
+
+        return diameters;
+    }
+}
@@ -35,11 +35,14 @@ import android.view.MenuItem;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.sample.common.ConfigSyncBatcher;
 import com.ustwo.clockwise.sample.common.WearableAPIHelper;
-import com.ustwo.clockwise.sample.common.util.DataMapUtil;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncState;
+import com.ustwo.clockwise.sample.common.util.PreferenceSchema;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
 import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -65,7 +68,15 @@ public class CompanionConfigActivity extends Activity implements SharedPreferenc
     private static final String COMPONENT_NAME = "android.support.wearable.watchface.extra.WATCH_FACE_COMPONENT";
     private static final String CONFIGURABLE_WATCHFACE_PREFERENCE_SCREEN = "configurable_watchface_preference_screen";
 
+    /**
+     * Keys and types of the preferences in {@link #CONFIGURABLE_WATCHFACE_PREFERENCE_SCREEN}.
+     */
+    private static final PreferenceSchema PREFERENCE_SCHEMA = new PreferenceSchema()
+            .add("pref_clockwise_sample_light_theme", Boolean.class)
+            .add("pref_clockwise_sample_sweep_seconds", Boolean.class);
+
     private WearableAPIHelper mWearableAPIHelper;
+    private ConfigSyncBatcher mConfigSyncBatcher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -92,6 +103,15 @@ public class CompanionConfigActivity extends Activity implements SharedPreferenc
     @Override
     protected void onDestroy() {
         getSharedPreferences(PREFS_COMPANION_CONFIG, MODE_PRIVATE).unregisterOnSharedPreferenceChangeListener(this);
+        if (mConfigSyncBatcher != null) {
+            // Send any changes still waiting in the batch window.
+            mConfigSyncBatcher.flushAll();
+        }
+        if (mWearableAPIHelper != null) {
+            // Sends what is still queued, then disconnects the client and stops the helper's thread.
+            mWearableAPIHelper.onDestroy();
+        }
+        PreferenceWriter.flushAllSync();
         super.onDestroy();
     }
 
@@ -144,24 +164,51 @@ public class CompanionConfigActivity extends Activity implements SharedPreferenc
             public void onWearableAPIConnectionFailed(ConnectionResult result) {
             }
         });
+        ConfigSyncState configSyncState = new ConfigSyncState(
+                getSharedPreferences(SharedPreferencesUtil.PREFS_CONFIG_VERSIONS, MODE_PRIVATE),
+                getSharedPreferences(PREFS_COMPANION_CONFIG, MODE_PRIVATE), SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+        // Changes are also copied to the local wearable prefs, stored once per batch.
+        PreferenceWriter wearablePrefsWriter = PreferenceWriter.get(
+                getSharedPreferences(WearableConfigListenerService.PREFS_WEARABLE_CONFIG, MODE_PRIVATE));
+        mConfigSyncBatcher = new ConfigSyncBatcher(mWearableAPIHelper, configSyncState, wearablePrefsWriter);
     }
 
 
     /**
-     * Copy over all the wearable shared preferences to the companion shared preferences.
+     * Copy over the wearable shared preferences changed since the last synchronisation to the companion shared
+     * preferences. If no versions have been recorded yet, all of them are copied.
      * <p/>
      * Note - this OnSharedPreferenceChangeListener must not be listening to changes to {@link #PREFS_COMPANION_CONFIG}
      * while we synchronise otherwise all the changes will be broadcast to the wearable. So, it is called before subscribing.
      */
     private void synchronizeWearablePreferences() {
         SharedPreferences wearablePrefs = getSharedPreferences(WearableConfigListenerService.PREFS_WEARABLE_CONFIG, MODE_PRIVATE);
-        SharedPreferences.Editor companionPrefsEditor = getSharedPreferences(PREFS_COMPANION_CONFIG, MODE_PRIVATE).edit();
-
-        for (Map.Entry<String, ?> entry : wearablePrefs.getAll().entrySet()) {
-            SharedPreferencesUtil.putObject(companionPrefsEditor, entry.getKey(), entry.getValue());
+        PreferenceWriter companionPrefsWriter = PreferenceWriter.get(getSharedPreferences(PREFS_COMPANION_CONFIG, MODE_PRIVATE));
+        ConfigSyncState wearableSyncState = new ConfigSyncState(
+                getSharedPreferences(SharedPreferencesUtil.PREFS_CONFIG_VERSIONS, MODE_PRIVATE), wearablePrefs,
+                SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+        List<String> changedKeys = wearableSyncState.getUnmergedRemoteChanges();
+        Map<String, ?> wearableValues = wearablePrefs.getAll();
+
+        if (changedKeys == null) {
+            for (Map.Entry<String, ?> entry : wearableValues.entrySet()) {
+                companionPrefsWriter.put(entry.getKey(), entry.getValue());
+            }
+        } else if (changedKeys.isEmpty()) {
+            // Nothing changed on the wearable since the last synchronisation.
+            return;
+        } else {
+            for (String key : changedKeys) {
+                Object value = wearableValues.get(key);
+                if (value != null) {
+                    companionPrefsWriter.put(key, value);
+                }
+            }
         }
 
-        companionPrefsEditor.commit();
+        // Applied values are visible immediately, so the preference fragment created next reads them.
+        companionPrefsWriter.flush();
+        wearableSyncState.markRemoteChangesMerged();
     }
 
     @Override
@@ -183,27 +230,13 @@ public class CompanionConfigActivity extends Activity implements SharedPreferenc
     @Override
     public void onSharedPreferenceChanged(SharedPreferences companionPrefs, String key) {
         // Retrieve the value of the SharedPreference that has changed.
-        Object value = SharedPreferencesUtil.getObject(companionPrefs, key);
+        Object value = SharedPreferencesUtil.getObject(companionPrefs, PREFERENCE_SCHEMA, key);
 
         if (value != null) {
-            // Store the changed value in the local wearable prefs. It is already stored in the companion prefs.
-            SharedPreferences.Editor wearablePrefsEditor = getSharedPreferences(
-                    WearableConfigListenerService.PREFS_WEARABLE_CONFIG, MODE_PRIVATE).edit();
-            SharedPreferencesUtil.putObject(wearablePrefsEditor, key, value);
-            wearablePrefsEditor.commit();
-
-            // Send the changed preference to the wearable. The path indicates the source of the change.
-            DataMap prefsDataMap = new DataMap();
-            DataMapUtil.putObject(prefsDataMap, key, value);
-
-            // We have to make the data map unique to ensure Wear API sends it to the wearable. This is required because
-            // it is valid for the companion app to send the same config change multiple times if the wearable was
-            // alternately changing the config value to something else.
-            DataMap dataMap = new DataMap();
-            dataMap.putDataMap(SharedPreferencesUtil.DATA_KEY_CONFIG_PREFS, prefsDataMap);
-            dataMap.putLong(SharedPreferencesUtil.DATA_KEY_CONFIG_TIMESTAMP, System.currentTimeMillis());
-
-            mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_COMPANION, dataMap, null);
+            // Send the changed preference to the wearable, batched with any other recent changes. The batcher also
+            // stores it in the local wearable prefs; it is already stored in the companion prefs. The path indicates
+            // the source of the change.
+            mConfigSyncBatcher.queue(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_COMPANION, key, value);
         }
     }
 }
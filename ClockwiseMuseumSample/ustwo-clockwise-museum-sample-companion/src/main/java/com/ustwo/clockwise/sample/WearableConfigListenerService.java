@@ -26,15 +26,22 @@ package com.ustwo.clockwise.sample;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.data.FreezableUtils;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.WearableListenerService;
+import com.ustwo.clockwise.sample.common.WearableAPIHelper;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncState;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
 import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Handles configuration changed events from the wearable and updates the local SharedPreferences.
@@ -47,6 +54,9 @@ public class WearableConfigListenerService extends WearableListenerService  {
      */
     protected static final String PREFS_WEARABLE_CONFIG = "wearable_config";
 
+    /** Sends acknowledgements, created on the first one. */
+    private WearableAPIHelper mWearableAPIHelper;
+
     @Override
     public void onDataChanged(DataEventBuffer dataEvents) {
         final List<DataEvent> events = FreezableUtils.freezeIterable(dataEvents);
@@ -55,28 +65,130 @@ public class WearableConfigListenerService extends WearableListenerService  {
         for (DataEvent event : events) {
             if(event.getDataItem() != null && event.getDataItem().getUri() != null) {
                 String path = event.getDataItem().getUri().getPath();
-                if (supportedPath.equals(path)) {
+                if (event.getType() == DataEvent.TYPE_DELETED) {
+                    if (SharedPreferencesUtil.DATA_PATH_DISPLAY_CAPABILITY.equals(path)) {
+                        // The watch's data items are deleted when it is unpaired.
+                        removeWatchDisplay(event.getDataItem().getUri().getHost());
+                    }
+                } else if (supportedPath.equals(path)) {
                     DataMap dataMap = DataMapItem.fromDataItem(event.getDataItem()).getDataMap();
                     updateSharedPreferences(dataMap);
+                } else if (SharedPreferencesUtil.DATA_PATH_DISPLAY_CAPABILITY.equals(path)) {
+                    DataMap dataMap = DataMapItem.fromDataItem(event.getDataItem()).getDataMap();
+                    updateWatchDisplay(event.getDataItem().getUri().getHost(), dataMap);
                 }
             }
         }
     }
 
+    /**
+     * Store the display size published by a watch, used by {@link BackgroundImageSender} to prepare images.
+     *
+     * @param nodeId    id of the watch which published the data item
+     * @param dataMap   DataMap consisting of the watch display capability
+     */
+    private void updateWatchDisplay(String nodeId, DataMap dataMap) {
+        int circleDiameter = dataMap.getInt(SharedPreferencesUtil.DATA_KEY_CIRCLE_DIAMETER, 0);
+
+        if (nodeId != null && circleDiameter > 0) {
+            PreferenceWriter.get(getSharedPreferences(BackgroundImageSender.PREFS_WATCH_DISPLAYS, Context.MODE_PRIVATE))
+                    .put(nodeId, circleDiameter).flush();
+            PreferenceWriter.get(getSharedPreferences(BackgroundImageSender.PREFS_WATCH_LAST_SEEN, Context.MODE_PRIVATE))
+                    .put(nodeId, System.currentTimeMillis()).flush();
+        }
+    }
+
+    /**
+     * A watch only publishes its display size when it changes, so connections are what show it is still paired.
+     * Refresh the time the watch was last seen and forget the watches which have not connected for a long time.
+     */
+    @Override
+    public void onPeerConnected(Node node) {
+        long now = System.currentTimeMillis();
+        SharedPreferences displayPrefs = getSharedPreferences(BackgroundImageSender.PREFS_WATCH_DISPLAYS,
+                Context.MODE_PRIVATE);
+        SharedPreferences lastSeenPrefs = getSharedPreferences(BackgroundImageSender.PREFS_WATCH_LAST_SEEN,
+                Context.MODE_PRIVATE);
+        PreferenceWriter lastSeenWriter = PreferenceWriter.get(lastSeenPrefs);
+
+        for (Map.Entry<String, ?> entry : displayPrefs.getAll().entrySet()) {
+            long lastSeen = lastSeenPrefs.getLong(entry.getKey(), 0);
+
+            // Watches stored before last seen times were recorded start counting from now.
+            if (entry.getKey().equals(node.getId()) || lastSeen == 0) {
+                lastSeenWriter.put(entry.getKey(), now);
+            } else if (now - lastSeen > BackgroundImageSender.WATCH_DISPLAY_EXPIRY_MS) {
+                removeWatchDisplay(entry.getKey());
+            }
+        }
+
+        lastSeenWriter.flush();
+    }
+
+    /**
+     * Forget the display size of a watch, so images are no longer prepared for it.
+     *
+     * @param nodeId    id of the watch
+     */
+    private void removeWatchDisplay(String nodeId) {
+        if (nodeId != null) {
+            PreferenceWriter.get(getSharedPreferences(BackgroundImageSender.PREFS_WATCH_DISPLAYS, Context.MODE_PRIVATE))
+                    .remove(nodeId).flush();
+            PreferenceWriter.get(getSharedPreferences(BackgroundImageSender.PREFS_WATCH_LAST_SEEN, Context.MODE_PRIVATE))
+                    .remove(nodeId).flush();
+        }
+    }
+
     /**
      * Update the phone's copy of the wearable's shared preferences. These will be synced to companion preference set by
-     * the {@link com.ustwo.clockwise.sample.CompanionConfigActivity} when it is created.
+     * the {@link com.ustwo.clockwise.sample.CompanionConfigActivity} when it is created. Only changes newer than the
+     * local version of each key are applied.
      *
      * @param dataMap   DataMap consisting of watch face preferences on the wearable
      */
     private void updateSharedPreferences(DataMap dataMap) {
-        DataMap prefsDataMap = dataMap.getDataMap(SharedPreferencesUtil.DATA_KEY_CONFIG_PREFS);
-        SharedPreferences.Editor editor = getSharedPreferences(PREFS_WEARABLE_CONFIG, Context.MODE_PRIVATE).edit();
+        ConfigSyncState configSyncState = new ConfigSyncState(
+                getSharedPreferences(SharedPreferencesUtil.PREFS_CONFIG_VERSIONS, Context.MODE_PRIVATE),
+                getSharedPreferences(PREFS_WEARABLE_CONFIG, Context.MODE_PRIVATE),
+                SharedPreferencesUtil.CONFIG_ORIGIN_COMPANION);
+        configSyncState.applyRemoteChanges(dataMap);
+        sendAcknowledgement(configSyncState, dataMap);
+    }
 
-        for (String key : prefsDataMap.keySet()) {
-            SharedPreferencesUtil.putObject(editor, key, prefsDataMap.get(key));
+    /**
+     * Acknowledge a payload from the peer once it has been applied, so the peer stops resending its changes even when
+     * nothing is changed on this device.
+     */
+    private void sendAcknowledgement(ConfigSyncState configSyncState, DataMap received) {
+        DataMap acknowledgement = new DataMap();
+
+        if (configSyncState.writeAcknowledgement(received, acknowledgement)) {
+            if (mWearableAPIHelper == null) {
+                mWearableAPIHelper = new WearableAPIHelper(this, new WearableAPIHelper.WearableAPIHelperListener() {
+                    @Override
+                    public void onWearableAPIConnected(GoogleApiClient apiClient) {
+                    }
+
+                    @Override
+                    public void onWearableAPIConnectionSuspended(int cause) {
+                    }
+
+                    @Override
+                    public void onWearableAPIConnectionFailed(ConnectionResult result) {
+                    }
+                });
+            }
+            mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_COMPANION, acknowledgement,
+                    null);
         }
+    }
 
-        editor.commit();
+    @Override
+    public void onDestroy() {
+        if (mWearableAPIHelper != null) {
+            // Sends what is still queued, then disconnects the client.
+            mWearableAPIHelper.onDestroy();
+        }
+        super.onDestroy();
     }
 }
@@ -24,27 +24,191 @@
 package com.ustwo.clockwise.sample.common;
 
 import android.content.SharedPreferences;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
+import android.text.format.DateUtils;
 
 import com.ustwo.clockwise.ConnectedWatchFace;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.WatchMode;
+import com.ustwo.clockwise.sample.common.util.ConfigSnapshot;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
+import com.ustwo.clockwise.sample.common.util.RenderMetrics;
+import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Base class for a watch face that can be configured by a companion.
+ * <p/>
+ * Also provides lightweight render instrumentation: subclasses wrap their phases with
+ * {@link #startPhase(RenderMetrics.Phase)} and {@link #endPhase(RenderMetrics.Phase, long)}, and the results can be
+ * read with {@link #getRenderMetrics()} or dumped with {@code adb shell dumpsys activity service <watch face service>}.
+ * <p/>
+ * {@link RenderMetrics.Phase#DRAW} and {@link RenderMetrics.Phase#TIME_CHANGED} must not allocate, so that garbage
+ * collections never coincide with a tick. This can be checked with {@link #setAllocationTracking(boolean, boolean)}.
+ * <p/>
+ * Loading the SharedPreferences parses their XML, so unless the config has to be read from them because there is no
+ * valid snapshot, the config change listener is only registered after the first frame has been drawn.
  */
 public abstract class ConfigurableConnectedWatchFace extends ConnectedWatchFace {
 
-    @Override
-    public void onCreate() {
-        super.onCreate();
-        PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(
-                mOnSharedPreferenceChangeListener);
+    /**
+     * Number of most recent samples kept per phase and watch mode
+     */
+    private static final int RENDER_METRICS_CAPACITY = 256;
+
+    /**
+     * A tick is counted as missed when the time since the previous tick exceeds the expected interval by this factor
+     */
+    private static final float MISSED_TICK_THRESHOLD = 1.5f;
+
+    private final RenderMetrics mRenderMetrics = new RenderMetrics(getWatchModeNames(), RENDER_METRICS_CAPACITY);
+
+    // Sends the display capability to the companion, created when first needed
+    private WearableAPIHelper mWearableAPIHelper;
+    private int mPublishedCircleDiameter;
+
+    // Start time and mode of the previous tick, used to detect missed ticks
+    private long mLastTickNanos = -1;
+    private WatchMode mLastTickWatchMode;
+
+    // Allocation tracking, see setAllocationTracking()
+    private boolean mIsAllocationTrackingEnabled = false;
+    private boolean mIsAllocationStrict = false;
+
+    /**
+     * Thread allocation count at the start of each phase, indexed by phase
+     */
+    private final int[] mPhaseStartAllocCounts = new int[RenderMetrics.Phase.values().length];
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Config change listener, registered after the first frame or when the config is read from the SharedPreferences
+    private boolean mIsConfigListenerScheduled = false;
+    private boolean mIsConfigListenerRegistered = false;
+
+    // Values read from the snapshot at startup, compared with the SharedPreferences once the listener is registered
+    private Map<String, Object> mConfigSnapshot;
+
+    private static String[] getWatchModeNames() {
+        WatchMode[] watchModes = WatchMode.values();
+        String[] names = new String[watchModes.length];
+        for (int i = 0; i < watchModes.length; i++) {
+            names[i] = watchModes[i].name();
+        }
+        return names;
+    }
+
+    /**
+     * Starts listening for config changes and keeping the snapshot up to date. Loads the SharedPreferences.
+     * <p/>
+     * Changes written after the snapshot was read but before the listener was registered are not observed, and the
+     * snapshot itself may be older than the SharedPreferences if its background write had not finished. Every value
+     * which differs from the snapshot the watch face started with is therefore reported as changed.
+     */
+    private void registerConfigListener() {
+        if(mIsConfigListenerRegistered) {
+            return;
+        }
+        mIsConfigListenerRegistered = true;
+        mHandler.removeCallbacks(mRegisterConfigListenerRunnable);
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        prefs.registerOnSharedPreferenceChangeListener(mOnSharedPreferenceChangeListener);
+        PreferenceWriter.get(prefs).setSnapshotFile(SharedPreferencesUtil.getConfigSnapshotFile(this));
+
+        if(mConfigSnapshot != null) {
+            Map<String, ?> values = prefs.getAll();
+            Set<String> keys = new HashSet<>(values.keySet());
+            keys.addAll(mConfigSnapshot.keySet());
+            for(String key : keys) {
+                Object value = values.get(key);
+                Object snapshotValue = mConfigSnapshot.get(key);
+                if(value == null ? snapshotValue != null : !value.equals(snapshotValue)) {
+                    onWatchFaceConfigChanged(prefs, key);
+                }
+            }
+            mConfigSnapshot = null;
+        }
+    }
+
+    /**
+     * Publishes the diameter of the watch face circle to the companion, so it can prepare images at exactly the size
+     * they are drawn at. Call after layout; nothing is sent if the diameter has not changed.
+     *
+     * @param circleDiameter diameter of the circle in pixels
+     */
+    protected void publishDisplayCapability(int circleDiameter) {
+        if(circleDiameter <= 0 || circleDiameter == mPublishedCircleDiameter) {
+            return;
+        }
+        mPublishedCircleDiameter = circleDiameter;
+
+        if(mWearableAPIHelper == null) {
+            mWearableAPIHelper = new WearableAPIHelper(this, new WearableAPIHelper.WearableAPIHelperListener() {
+                @Override
+                public void onWearableAPIConnected(GoogleApiClient apiClient) {
+                }
+
+                @Override
+                public void onWearableAPIConnectionSuspended(int cause) {
+                }
+
+                @Override
+                public void onWearableAPIConnectionFailed(ConnectionResult result) {
+                }
+            });
+        }
+
+        DataMap dataMap = new DataMap();
+        dataMap.putInt(SharedPreferencesUtil.DATA_KEY_CIRCLE_DIAMETER, circleDiameter);
+        mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_DISPLAY_CAPABILITY, dataMap, null);
+    }
+
+    /**
+     * Reads the config from its binary snapshot, which avoids parsing the SharedPreferences XML at startup. If there
+     * is no valid snapshot, one is written in the background for the next start.
+     *
+     * @return the config values, or null if there is no valid snapshot and the SharedPreferences must be used.
+     */
+    protected Map<String, Object> readConfigSnapshot() {
+        Map<String, Object> values = ConfigSnapshot.read(SharedPreferencesUtil.getConfigSnapshotFile(this));
+
+        if (values == null) {
+            // The SharedPreferences are loaded by the caller anyway, so start listening straight away.
+            registerConfigListener();
+            PreferenceWriter.get(PreferenceManager.getDefaultSharedPreferences(this)).writeSnapshot();
+        } else if (!mIsConfigListenerRegistered) {
+            mConfigSnapshot = values;
+        }
+
+        return values;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(
-                mOnSharedPreferenceChangeListener);
+        setAllocationTracking(false, false);
+        if(mWearableAPIHelper != null) {
+            mWearableAPIHelper.onDestroy();
+            mWearableAPIHelper = null;
+        }
+        mHandler.removeCallbacks(mRegisterConfigListenerRunnable);
+        if(mIsConfigListenerRegistered) {
+            PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(
+                    mOnSharedPreferenceChangeListener);
+            mIsConfigListenerRegistered = false;
+        }
     }
 
     /**
@@ -57,6 +221,127 @@ public abstract class ConfigurableConnectedWatchFace extends ConnectedWatchFace
      */
     protected abstract void onWatchFaceConfigChanged(SharedPreferences sharedPreferences, String key);
 
+    /**
+     * Marks the start of an instrumented phase.
+     *
+     * @param phase The phase which starts
+     * @return The start time, to pass to {@link #endPhase(RenderMetrics.Phase, long)}
+     */
+    protected final long startPhase(RenderMetrics.Phase phase) {
+        if(mIsAllocationTrackingEnabled) {
+            mPhaseStartAllocCounts[phase.ordinal()] = Debug.getThreadAllocCount();
+        }
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Marks the end of an instrumented phase and records its duration for the current watch mode.
+     * {@link RenderMetrics.Phase#TIME_CHANGED} phases are also used to detect missed ticks.
+     *
+     * @param phase      The phase which ended
+     * @param startNanos The value returned by {@link #startPhase(RenderMetrics.Phase)}
+     * @return The duration of the phase, in nanoseconds
+     */
+    protected final long endPhase(RenderMetrics.Phase phase, long startNanos) {
+        long durationNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        int allocations = 0;
+        if(mIsAllocationTrackingEnabled && isAllocationFreePhase(phase)) {
+            allocations = Debug.getThreadAllocCount() - mPhaseStartAllocCounts[phase.ordinal()];
+        }
+        WatchMode watchMode = getCurrentWatchMode();
+
+        if(allocations > 0) {
+            if(watchMode != null) {
+                mRenderMetrics.recordAllocations(phase, watchMode.ordinal(), allocations);
+            }
+            if(mIsAllocationStrict) {
+                throw new IllegalStateException(phase + " allocated " + allocations + " objects");
+            }
+        }
+
+        if(watchMode != null) {
+            mRenderMetrics.record(phase, watchMode.ordinal(), durationNanos);
+
+            if(phase == RenderMetrics.Phase.TIME_CHANGED) {
+                recordTick(watchMode, startNanos);
+            }
+        }
+
+        if(phase == RenderMetrics.Phase.DRAW && !mIsConfigListenerScheduled) {
+            // Register after this frame has been handed over rather than in the middle of drawing it.
+            mIsConfigListenerScheduled = true;
+            mHandler.post(mRegisterConfigListenerRunnable);
+        }
+
+        return durationNanos;
+    }
+
+    private static boolean isAllocationFreePhase(RenderMetrics.Phase phase) {
+        return phase == RenderMetrics.Phase.DRAW || phase == RenderMetrics.Phase.TIME_CHANGED;
+    }
+
+    /**
+     * Counts the objects allocated by {@link RenderMetrics.Phase#DRAW} and {@link RenderMetrics.Phase#TIME_CHANGED}
+     * phases, which are reported in the render metrics. Allocation counting slows down the whole process, so only
+     * enable it for tests and debugging. Must be called on the main thread.
+     *
+     * @param isEnabled Whether allocations are counted
+     * @param isStrict  If true, a phase which allocates throws an {@link IllegalStateException} when it ends
+     */
+    public void setAllocationTracking(boolean isEnabled, boolean isStrict) {
+        if(isEnabled && !mIsAllocationTrackingEnabled) {
+            Debug.startAllocCounting();
+        } else if(!isEnabled && mIsAllocationTrackingEnabled) {
+            Debug.stopAllocCounting();
+        }
+
+        mIsAllocationTrackingEnabled = isEnabled;
+        mIsAllocationStrict = isEnabled && isStrict;
+    }
+
+    private void recordTick(WatchMode watchMode, long tickNanos) {
+        if(mLastTickNanos >= 0 && watchMode == mLastTickWatchMode) {
+            long expectedIntervalMs = (watchMode == WatchMode.INTERACTIVE) ? getInteractiveModeUpdateRate() :
+                    DateUtils.MINUTE_IN_MILLIS;
+            long expectedIntervalNanos = expectedIntervalMs * 1000 * 1000;
+            long intervalNanos = tickNanos - mLastTickNanos;
+
+            if(expectedIntervalNanos > 0 && intervalNanos > expectedIntervalNanos * MISSED_TICK_THRESHOLD) {
+                mRenderMetrics.recordMissedTicks(watchMode.ordinal(), intervalNanos / expectedIntervalNanos - 1);
+            }
+        }
+
+        mLastTickNanos = tickNanos;
+        mLastTickWatchMode = watchMode;
+    }
+
+    /**
+     * @return The render metrics recorded by this watch face
+     */
+    public RenderMetrics getRenderMetrics() {
+        return mRenderMetrics;
+    }
+
+    /**
+     * Returns a summary of the recorded timings of a phase in a watch mode
+     */
+    public RenderMetrics.Snapshot getRenderMetricsSnapshot(RenderMetrics.Phase phase, WatchMode watchMode) {
+        return mRenderMetrics.getSnapshot(phase, watchMode.ordinal());
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        mRenderMetrics.dump(writer);
+    }
+
+    private final Runnable mRegisterConfigListenerRunnable = new Runnable() {
+        @Override
+        public void run() {
+            registerConfigListener();
+        }
+    };
+
     private final SharedPreferences.OnSharedPreferenceChangeListener mOnSharedPreferenceChangeListener =
             new SharedPreferences.OnSharedPreferenceChangeListener() {
                 @Override
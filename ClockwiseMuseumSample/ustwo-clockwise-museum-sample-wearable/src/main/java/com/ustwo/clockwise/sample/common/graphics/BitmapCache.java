@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.graphics;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import com.ustwo.clockwise.sample.common.util.BitmapDecodeUtil;
+
+/**
+ * Memory-bounded cache of decoded and scaled bitmap resources, keyed by resource id, target size and config.
+ * Least recently used bitmaps are evicted once the byte budget is exceeded.
+ * <p/>
+ * Evicted bitmaps are not recycled, as they may still be referenced by the caller; they are left to the GC.
+ * The cache is safe to use from multiple threads.
+ */
+public class BitmapCache {
+
+    private final LruCache<String, Bitmap> mCache;
+
+    /**
+     * @param maxSizeBytes The maximum number of bytes of bitmap data held by the cache
+     */
+    public BitmapCache(int maxSizeBytes) {
+        mCache = new LruCache<String, Bitmap>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the resource decoded and scaled to the given size, decoding it if it is not cached.
+     *
+     * @param resources Resources to decode from
+     * @param resId     The drawable resource id
+     * @param width     Target width, in pixels
+     * @param height    Target height, in pixels
+     * @param config    Target bitmap config
+     * @return The bitmap, or null if the resource could not be decoded.
+     */
+    public Bitmap get(Resources resources, int resId, int width, int height, Bitmap.Config config) {
+        String key = getKey(resId, width, height, config);
+        Bitmap bitmap = mCache.get(key);
+
+        if(bitmap == null) {
+            bitmap = decodeScaledResource(resources, resId, width, height, config);
+            if(bitmap != null) {
+                mCache.put(key, bitmap);
+            }
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Returns the bitmap if it is already cached, without decoding it.
+     *
+     * @return The bitmap, or null if it is not cached.
+     */
+    public Bitmap peek(int resId, int width, int height, Bitmap.Config config) {
+        return mCache.get(getKey(resId, width, height, config));
+    }
+
+    /**
+     * Evicts all bitmaps from the cache
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private static String getKey(int resId, int width, int height, Bitmap.Config config) {
+        return resId + ":" + width + "x" + height + ":" + config;
+    }
+
+    /**
+     * Decodes a resource at the smallest power-of-two sample size that is still at least the target size, then scales
+     * it to the exact target size. The intermediate bitmap is recycled.
+     * <p/>
+     * If config is {@link Bitmap.Config#ALPHA_8}, only the alpha channel of the resource is kept, and it is scaled
+     * without filtering so hard edges (e.g. of 1-bit artwork) stay hard. Such masks are drawn using the paint color.
+     */
+    public static Bitmap decodeScaledResource(Resources resources, int resId, int width, int height,
+                                              Bitmap.Config config) {
+        if(width <= 0 || height <= 0) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = BitmapDecodeUtil.calculateInSampleSize(options.outWidth, options.outHeight, width,
+                height);
+        boolean isAlphaMask = config == Bitmap.Config.ALPHA_8;
+        options.inPreferredConfig = isAlphaMask ? Bitmap.Config.ARGB_8888 : config;
+
+        Bitmap decoded = BitmapFactory.decodeResource(resources, resId, options);
+        if(decoded == null) {
+            return null;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, width, height, !isAlphaMask);
+        if(scaled != decoded) {
+            decoded.recycle();
+        }
+
+        if(isAlphaMask) {
+            Bitmap mask = scaled.extractAlpha();
+            scaled.recycle();
+            scaled = mask;
+        }
+
+        return scaled;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.graphics;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes bitmap resources into a {@link BitmapCache} on a background thread, so the render thread never blocks on
+ * decoding. Listeners are notified on the main thread once every requested bitmap is available in the cache.
+ */
+public class BitmapCacheLoader {
+
+    /**
+     * Listener for completion of a load request. Always called on the main thread.
+     */
+    public interface OnBitmapsLoadedListener {
+        public void onBitmapsLoaded();
+    }
+
+    private final BitmapCache mBitmapCache;
+    private final Resources mResources;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Set on the main thread by {@link #shutdown()}. Checked before notifying listeners, because notifications already
+     * posted to the main thread are not cancelled by stopping the executor.
+     */
+    private boolean mIsShutdown = false;
+
+    public BitmapCacheLoader(BitmapCache bitmapCache, Resources resources) {
+        mBitmapCache = bitmapCache;
+        mResources = resources;
+    }
+
+    /**
+     * Decodes and scales the given resources into the cache on a background thread. Resources which are already
+     * cached are not decoded again.
+     *
+     * @param resIds   The drawable resources to load
+     * @param width    Target width, in pixels
+     * @param height   Target height, in pixels
+     * @param config   Target bitmap config
+     * @param listener Notified on the main thread once loading completes, unless the loader has been shut down by
+     *                 then. Can be null.
+     */
+    public void load(final int[] resIds, final int width, final int height, final Bitmap.Config config,
+                     final OnBitmapsLoadedListener listener) {
+        if(mExecutor.isShutdown()) {
+            return;
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int resId : resIds) {
+                    mBitmapCache.get(mResources, resId, width, height, config);
+                }
+
+                if(listener != null) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if(!mIsShutdown) {
+                                listener.onBitmapsLoaded();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the background thread. Pending load requests are discarded, and no listener is notified afterwards.
+     * Must be called on the main thread.
+     */
+    public void shutdown() {
+        mIsShutdown = true;
+        mExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.graphics;
+
+/**
+ * Precomputed hand positions for an analog watch face, so hands can be drawn at their end-point coordinates without
+ * rotating the canvas or evaluating trigonometric functions every tick.
+ * <p/>
+ * Coordinates are relative to the center of the face, with 0 degrees at 12 o'clock and y pointing down.
+ */
+public class HandGeometry {
+
+    /**
+     * Number of discrete second and minute hand positions
+     */
+    public static final int MINUTE_POSITIONS = 60;
+
+    /**
+     * Number of discrete hour hand positions (one per minute over 12 hours)
+     */
+    public static final int HOUR_POSITIONS = 720;
+
+    private static final float[] SIN_60 = new float[MINUTE_POSITIONS];
+    private static final float[] COS_60 = new float[MINUTE_POSITIONS];
+    private static final float[] SIN_720 = new float[HOUR_POSITIONS];
+    private static final float[] COS_720 = new float[HOUR_POSITIONS];
+
+    static {
+        for (int i = 0; i < MINUTE_POSITIONS; i++) {
+            double radians = 2.0 * Math.PI * i / MINUTE_POSITIONS;
+            SIN_60[i] = (float) Math.sin(radians);
+            COS_60[i] = (float) Math.cos(radians);
+        }
+        for (int i = 0; i < HOUR_POSITIONS; i++) {
+            double radians = 2.0 * Math.PI * i / HOUR_POSITIONS;
+            SIN_720[i] = (float) Math.sin(radians);
+            COS_720[i] = (float) Math.cos(radians);
+        }
+    }
+
+    // Second hand radii, kept for interpolated positions
+    private float mSecondHandInnerRadius;
+    private float mSecondHandOuterRadius;
+
+    // Second hand line end points, per second
+    private final float[] mSecondStartX = new float[MINUTE_POSITIONS];
+    private final float[] mSecondStartY = new float[MINUTE_POSITIONS];
+    private final float[] mSecondEndX = new float[MINUTE_POSITIONS];
+    private final float[] mSecondEndY = new float[MINUTE_POSITIONS];
+
+    // Minute and hour dot centers
+    private final float[] mMinuteDotX = new float[MINUTE_POSITIONS];
+    private final float[] mMinuteDotY = new float[MINUTE_POSITIONS];
+    private final float[] mHourDotX = new float[HOUR_POSITIONS];
+    private final float[] mHourDotY = new float[HOUR_POSITIONS];
+
+    /**
+     * Rebuilds the position tables for the given dimensions. Call whenever the layout changes.
+     *
+     * @param secondHandInnerRadius Distance from the center at which the second hand starts
+     * @param secondHandOuterRadius Distance from the center at which the second hand ends
+     * @param dotDistance           Distance from the center to the minute and hour dot centers
+     */
+    public void setDimensions(float secondHandInnerRadius, float secondHandOuterRadius, float dotDistance) {
+        mSecondHandInnerRadius = secondHandInnerRadius;
+        mSecondHandOuterRadius = secondHandOuterRadius;
+
+        for (int i = 0; i < MINUTE_POSITIONS; i++) {
+            mSecondStartX[i] = SIN_60[i] * secondHandInnerRadius;
+            mSecondStartY[i] = -COS_60[i] * secondHandInnerRadius;
+            mSecondEndX[i] = SIN_60[i] * secondHandOuterRadius;
+            mSecondEndY[i] = -COS_60[i] * secondHandOuterRadius;
+
+            mMinuteDotX[i] = SIN_60[i] * dotDistance;
+            mMinuteDotY[i] = -COS_60[i] * dotDistance;
+        }
+        for (int i = 0; i < HOUR_POSITIONS; i++) {
+            mHourDotX[i] = SIN_720[i] * dotDistance;
+            mHourDotY[i] = -COS_720[i] * dotDistance;
+        }
+    }
+
+    /**
+     * @param hour   Hour of the day, 0-23
+     * @param minute Minute of the hour, 0-59
+     * @return The hour hand position, 0-719
+     */
+    public static int getHourPosition(int hour, int minute) {
+        return (hour % 12) * MINUTE_POSITIONS + minute;
+    }
+
+    /**
+     * Writes the second hand end points for a position between whole seconds, e.g. for a sweeping second hand.
+     * Unlike the table lookups, this evaluates trigonometric functions.
+     *
+     * @param second Seconds into the minute, including the fraction, 0-60
+     * @param output Array of at least 4 elements which will receive {startX, startY, endX, endY}
+     */
+    public void computeSecondHand(float second, float[] output) {
+        double radians = 2.0 * Math.PI * second / MINUTE_POSITIONS;
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+
+        output[0] = sin * mSecondHandInnerRadius;
+        output[1] = -cos * mSecondHandInnerRadius;
+        output[2] = sin * mSecondHandOuterRadius;
+        output[3] = -cos * mSecondHandOuterRadius;
+    }
+
+    /**
+     * Writes the second hand end points for a whole second from the precomputed tables.
+     *
+     * @param second Seconds into the minute, 0-59
+     * @param output Array of at least 4 elements which will receive {startX, startY, endX, endY}
+     */
+    public void getSecondHand(int second, float[] output) {
+        output[0] = mSecondStartX[second];
+        output[1] = mSecondStartY[second];
+        output[2] = mSecondEndX[second];
+        output[3] = mSecondEndY[second];
+    }
+
+    public float getMinuteDotX(int minute) {
+        return mMinuteDotX[minute];
+    }
+
+    public float getMinuteDotY(int minute) {
+        return mMinuteDotY[minute];
+    }
+
+    /**
+     * @param hourPosition Position from {@link #getHourPosition(int, int)}
+     */
+    public float getHourDotX(int hourPosition) {
+        return mHourDotX[hourPosition];
+    }
+
+    /**
+     * @param hourPosition Position from {@link #getHourPosition(int, int)}
+     */
+    public float getHourDotY(int hourPosition) {
+        return mHourDotY[hourPosition];
+    }
+}
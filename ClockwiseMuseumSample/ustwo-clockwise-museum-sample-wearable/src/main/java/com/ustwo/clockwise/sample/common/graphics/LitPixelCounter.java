@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.graphics;
+
+import android.graphics.Bitmap;
+
+/**
+ * Counts lit (non-black) pixels, e.g. to check a burn-in protection frame against an OLED power budget.
+ */
+public class LitPixelCounter {
+
+    /**
+     * Counts the pixels of a bitmap with any color channel above the threshold.
+     *
+     * @param bitmap    The bitmap to examine
+     * @param rowBuffer Buffer of at least the bitmap width, reused between calls to avoid allocation
+     * @param threshold Channel value (0-255) above which a pixel counts as lit
+     * @return The number of lit pixels
+     */
+    public static int count(Bitmap bitmap, int[] rowBuffer, int threshold) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int litPixelCount = 0;
+
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(rowBuffer, 0, width, 0, y, width, 1);
+            litPixelCount += count(rowBuffer, width, threshold);
+        }
+
+        return litPixelCount;
+    }
+
+    /**
+     * Counts the ARGB pixels with any color channel above the threshold.
+     *
+     * @param pixels    ARGB pixels
+     * @param length    Number of pixels to examine
+     * @param threshold Channel value (0-255) above which a pixel counts as lit
+     * @return The number of lit pixels
+     */
+    public static int count(int[] pixels, int length, int threshold) {
+        int litPixelCount = 0;
+
+        for (int i = 0; i < length; i++) {
+            int pixel = pixels[i];
+            if(((pixel >> 16) & 0xFF) > threshold || ((pixel >> 8) & 0xFF) > threshold || (pixel & 0xFF) > threshold) {
+                litPixelCount++;
+            }
+        }
+
+        return litPixelCount;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.graphics;
+
+import android.graphics.PointF;
+
+/**
+ * Scales dimensions given in a design spec to the size the face is rendered at.
+ */
+public class SpecScaler {
+
+    private SpecScaler() {
+    }
+
+    /**
+     * Scales a float dimension from a spec value to the specified render size
+     * @param specValue The spec value to scale
+     * @param specSize The size of the screen the spec was designed for
+     * @param renderSize The size rendered at
+     * @return The scaled dimension
+     */
+    public static float scale(float specValue, float specSize, float renderSize) {
+        return (specValue / specSize) * renderSize;
+    }
+
+    /**
+     * Scales a point from a spec value to the specified render size, and returns the result in output
+     * @param output The point which will be set to the output of the operation
+     * @param specValue The spec point to be scaled
+     * @param specSize The size of the screen the spec was designed for
+     * @param renderSize The size rendered at
+     */
+    public static void scale(PointF output, PointF specValue, float specSize, float renderSize) {
+        if(output == null || specValue == null) {
+            return;
+        }
+        output.set(scale(specValue.x, specSize, renderSize), scale(specValue.y, specSize, renderSize));
+    }
+}
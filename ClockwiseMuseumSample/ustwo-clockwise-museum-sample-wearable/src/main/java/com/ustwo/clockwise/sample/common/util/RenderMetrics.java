@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Records watch face render timings per phase and per watch mode into preallocated ring buffers, so recording never
+ * allocates. Percentiles are calculated over the most recent samples only when a snapshot is taken.
+ * <p/>
+ * Objects allocated by a phase can also be recorded, when the watch face tracks allocations.
+ * <p/>
+ * Recording is expected to happen on a single thread. Snapshots may be taken from another thread (e.g. when
+ * dumping); they may then be slightly inconsistent, which is acceptable for diagnostics.
+ */
+public class RenderMetrics {
+
+    /**
+     * Instrumented phases of a watch face
+     */
+    public enum Phase {
+        DRAW,
+        TIME_CHANGED,
+        REFRESH_STATE,
+        LAYOUT
+    }
+
+    /**
+     * Summary of the recorded samples of one phase in one mode. Times are in nanoseconds.
+     */
+    public static class Snapshot {
+        public final long count;
+        public final long p50;
+        public final long p95;
+        public final long p99;
+        public final long max;
+        public final long missedTicks;
+        public final long allocations;
+
+        public Snapshot(long count, long p50, long p95, long p99, long max, long missedTicks, long allocations) {
+            this.count = count;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+            this.missedTicks = missedTicks;
+            this.allocations = allocations;
+        }
+    }
+
+    private final int mCapacity;
+    private final String[] mModeNames;
+
+    /**
+     * Ring buffers of durations, indexed by [phase][mode][sample]
+     */
+    private final long[][][] mSamples;
+
+    /**
+     * Total number of samples recorded, indexed by [phase][mode]
+     */
+    private final long[][] mCounts;
+
+    /**
+     * Number of missed ticks, indexed by mode
+     */
+    private final long[] mMissedTicks;
+
+    /**
+     * Number of objects allocated, indexed by [phase][mode]
+     */
+    private final long[][] mAllocations;
+
+    /**
+     * @param modeNames Names of the watch modes, indexed by mode
+     * @param capacity  Number of most recent samples kept per phase and mode
+     */
+    public RenderMetrics(String[] modeNames, int capacity) {
+        mCapacity = capacity;
+        mModeNames = modeNames;
+
+        int phaseCount = Phase.values().length;
+        mSamples = new long[phaseCount][modeNames.length][capacity];
+        mCounts = new long[phaseCount][modeNames.length];
+        mMissedTicks = new long[modeNames.length];
+        mAllocations = new long[phaseCount][modeNames.length];
+    }
+
+    /**
+     * Records the duration of a phase
+     *
+     * @param phase         The phase
+     * @param mode          Index of the watch mode the phase ran in
+     * @param durationNanos Duration of the phase
+     */
+    public void record(Phase phase, int mode, long durationNanos) {
+        long count = mCounts[phase.ordinal()][mode];
+        mSamples[phase.ordinal()][mode][(int) (count % mCapacity)] = durationNanos;
+        mCounts[phase.ordinal()][mode] = count + 1;
+    }
+
+    /**
+     * Records ticks which should have happened but did not
+     *
+     * @param mode  Index of the watch mode
+     * @param count Number of missed ticks
+     */
+    public void recordMissedTicks(int mode, long count) {
+        mMissedTicks[mode] += count;
+    }
+
+    /**
+     * Records objects allocated during a phase
+     *
+     * @param phase The phase
+     * @param mode  Index of the watch mode the phase ran in
+     * @param count Number of objects allocated
+     */
+    public void recordAllocations(Phase phase, int mode, long count) {
+        mAllocations[phase.ordinal()][mode] += count;
+    }
+
+    /**
+     * Calculates a summary of the recorded samples. Allocates, so do not call while rendering.
+     *
+     * @param phase The phase
+     * @param mode  Index of the watch mode
+     * @return The summary
+     */
+    public Snapshot getSnapshot(Phase phase, int mode) {
+        long count = mCounts[phase.ordinal()][mode];
+        int sampleCount = (int) Math.min(count, mCapacity);
+
+        if(sampleCount == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, mMissedTicks[mode], mAllocations[phase.ordinal()][mode]);
+        }
+
+        long[] sorted = Arrays.copyOf(mSamples[phase.ordinal()][mode], sampleCount);
+        Arrays.sort(sorted);
+
+        return new Snapshot(count, getPercentile(sorted, 50), getPercentile(sorted, 95), getPercentile(sorted, 99),
+                sorted[sampleCount - 1], mMissedTicks[mode], mAllocations[phase.ordinal()][mode]);
+    }
+
+    private static long getPercentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Writes a summary of every phase and mode with recorded samples. Times are printed in microseconds.
+     */
+    public void dump(PrintWriter writer) {
+        writer.println("Render metrics (us): mode phase count p50 p95 p99 max missedTicks allocations");
+
+        for (int mode = 0; mode < mModeNames.length; mode++) {
+            for (Phase phase : Phase.values()) {
+                Snapshot snapshot = getSnapshot(phase, mode);
+                if(snapshot.count == 0) {
+                    continue;
+                }
+
+                writer.println("  " + mModeNames[mode] + " " + phase + " " + snapshot.count
+                        + " " + snapshot.p50 / 1000 + " " + snapshot.p95 / 1000 + " " + snapshot.p99 / 1000
+                        + " " + snapshot.max / 1000 + " " + snapshot.missedTicks + " " + snapshot.allocations);
+            }
+        }
+    }
+}
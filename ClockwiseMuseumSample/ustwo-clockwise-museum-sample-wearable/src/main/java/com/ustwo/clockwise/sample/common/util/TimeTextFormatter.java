@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.common.util;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Allocation-free formatter for the time ("h:mm" or "HH:mm") and date ("MMM dd") texts of a watch face.
+ * Text is written into reusable char arrays, which can be drawn with
+ * {@link android.graphics.Canvas#drawText(char[], int, int, float, float, android.graphics.Paint)}.
+ * <p/>
+ * Not thread-safe; use from the render thread only.
+ */
+public class TimeTextFormatter {
+
+    private static final char[] DIGIT_TENS = new char[100];
+    private static final char[] DIGIT_ONES = new char[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (char) ('0' + i / 10);
+            DIGIT_ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    /**
+     * Localized short month names, indexed by month (0-11)
+     */
+    private final char[][] mMonthAbbreviations = new char[12][];
+
+    private final char[] mTimeText = new char[5];
+    private int mTimeTextLength = 0;
+
+    private final char[] mDateText;
+    private int mDateTextLength = 0;
+
+    public TimeTextFormatter(Locale locale) {
+        String[] shortMonths = new DateFormatSymbols(locale).getShortMonths();
+        int maxMonthLength = 0;
+
+        for (int i = 0; i < mMonthAbbreviations.length; i++) {
+            mMonthAbbreviations[i] = shortMonths[i].toCharArray();
+            maxMonthLength = Math.max(maxMonthLength, mMonthAbbreviations[i].length);
+        }
+
+        // Month, space and two digit day
+        mDateText = new char[maxMonthLength + 3];
+    }
+
+    /**
+     * Formats the time text as "HH:mm" (24 hour) or "h:mm" (12 hour).
+     *
+     * @param hour     Hour of the day, 0-23
+     * @param minute   Minute of the hour, 0-59
+     * @param is24Hour Whether to use 24 hour format
+     */
+    public void formatTime(int hour, int minute, boolean is24Hour) {
+        int length = 0;
+
+        if(is24Hour) {
+            mTimeText[length++] = DIGIT_TENS[hour];
+            mTimeText[length++] = DIGIT_ONES[hour];
+        } else {
+            int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+            if(hour12 >= 10) {
+                mTimeText[length++] = DIGIT_TENS[hour12];
+            }
+            mTimeText[length++] = DIGIT_ONES[hour12];
+        }
+
+        mTimeText[length++] = ':';
+        mTimeText[length++] = DIGIT_TENS[minute];
+        mTimeText[length++] = DIGIT_ONES[minute];
+
+        mTimeTextLength = length;
+    }
+
+    /**
+     * Formats the date text as "MMM dd".
+     *
+     * @param month      Month of the year, 0-11
+     * @param dayOfMonth Day of the month, 1-31
+     */
+    public void formatDate(int month, int dayOfMonth) {
+        char[] monthText = mMonthAbbreviations[month];
+        System.arraycopy(monthText, 0, mDateText, 0, monthText.length);
+
+        int length = monthText.length;
+        mDateText[length++] = ' ';
+        mDateText[length++] = DIGIT_TENS[dayOfMonth];
+        mDateText[length++] = DIGIT_ONES[dayOfMonth];
+
+        mDateTextLength = length;
+    }
+
+    /**
+     * @return The time text buffer. Only the first {@link #getTimeTextLength()} chars are valid.
+     */
+    public char[] getTimeText() {
+        return mTimeText;
+    }
+
+    public int getTimeTextLength() {
+        return mTimeTextLength;
+    }
+
+    /**
+     * @return The date text buffer. Only the first {@link #getDateTextLength()} chars are valid.
+     */
+    public char[] getDateText() {
+        return mDateText;
+    }
+
+    public int getDateTextLength() {
+        return mDateTextLength;
+    }
+}
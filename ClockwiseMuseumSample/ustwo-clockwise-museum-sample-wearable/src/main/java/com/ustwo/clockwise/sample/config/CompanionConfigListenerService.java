@@ -27,12 +27,17 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.data.FreezableUtils;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.WearableListenerService;
+import com.ustwo.clockwise.sample.common.WearableAPIHelper;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncState;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
 import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
 
 import java.util.List;
@@ -42,15 +47,21 @@ import java.util.List;
  */
 public class CompanionConfigListenerService extends WearableListenerService {
 
+    /** Sends acknowledgements, created on the first one. */
+    private WearableAPIHelper mWearableAPIHelper;
+
     private void updateSharedPreferences(DataMap dataMap) {
-        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(this).edit();
-        DataMap prefsDataMap = dataMap.getDataMap(SharedPreferencesUtil.DATA_KEY_CONFIG_PREFS);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
 
-        for (String key : prefsDataMap.keySet()) {
-            SharedPreferencesUtil.putObject(editor, key, prefsDataMap.get(key));
-        }
+        // Keep the snapshot the watch face reads at startup up to date.
+        PreferenceWriter.get(prefs).setSnapshotFile(SharedPreferencesUtil.getConfigSnapshotFile(this));
 
-        editor.commit();
+        // Only changes newer than the local version of each key are applied.
+        ConfigSyncState configSyncState = new ConfigSyncState(
+                getSharedPreferences(SharedPreferencesUtil.PREFS_CONFIG_VERSIONS, Context.MODE_PRIVATE), prefs,
+                SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        configSyncState.applyRemoteChanges(dataMap);
+        sendAcknowledgement(configSyncState, dataMap);
     }
 
     @Override
@@ -67,4 +78,41 @@ public class CompanionConfigListenerService extends WearableListenerService {
             }
         }
     }
+
+    /**
+     * Acknowledge a payload from the peer once it has been applied, so the peer stops resending its changes even when
+     * nothing is changed on this device.
+     */
+    private void sendAcknowledgement(ConfigSyncState configSyncState, DataMap received) {
+        DataMap acknowledgement = new DataMap();
+
+        if (configSyncState.writeAcknowledgement(received, acknowledgement)) {
+            if (mWearableAPIHelper == null) {
+                mWearableAPIHelper = new WearableAPIHelper(this, new WearableAPIHelper.WearableAPIHelperListener() {
+                    @Override
+                    public void onWearableAPIConnected(GoogleApiClient apiClient) {
+                    }
+
+                    @Override
+                    public void onWearableAPIConnectionSuspended(int cause) {
+                    }
+
+                    @Override
+                    public void onWearableAPIConnectionFailed(ConnectionResult result) {
+                    }
+                });
+            }
+            mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_WEARABLE, acknowledgement,
+                    null);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        if (mWearableAPIHelper != null) {
+            // Sends what is still queued, then disconnects the client.
+            mWearableAPIHelper.onDestroy();
+        }
+        super.onDestroy();
+    }
 }
@@ -32,9 +32,10 @@ import android.util.Log;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.wearable.DataMap;
+import com.ustwo.clockwise.sample.common.ConfigSyncBatcher;
 import com.ustwo.clockwise.sample.common.WearableAPIHelper;
-import com.ustwo.clockwise.sample.common.util.DataMapUtil;
+import com.ustwo.clockwise.sample.common.util.ConfigSyncState;
+import com.ustwo.clockwise.sample.common.util.PreferenceWriter;
 import com.ustwo.clockwise.sample.common.util.SharedPreferencesUtil;
 
 /**
@@ -48,6 +49,7 @@ public class WearableConfigActivity extends Activity implements WearableConfigLi
     private static final String CLOCKWISE_SAMPLE_CONFIG = "clockwise_sample_config";
 
     private WearableAPIHelper mWearableAPIHelper;
+    private ConfigSyncBatcher mConfigSyncBatcher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -80,28 +82,36 @@ public class WearableConfigActivity extends Activity implements WearableConfigLi
             public void onWearableAPIConnectionFailed(ConnectionResult result) {
             }
         });
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        ConfigSyncState configSyncState = new ConfigSyncState(
+                getSharedPreferences(SharedPreferencesUtil.PREFS_CONFIG_VERSIONS, MODE_PRIVATE), prefs,
+                SharedPreferencesUtil.CONFIG_ORIGIN_WEARABLE);
+        PreferenceWriter preferenceWriter = PreferenceWriter.get(prefs);
+        mConfigSyncBatcher = new ConfigSyncBatcher(mWearableAPIHelper, configSyncState, preferenceWriter);
+
+        // Keep the snapshot the watch face reads at startup up to date.
+        preferenceWriter.setSnapshotFile(SharedPreferencesUtil.getConfigSnapshotFile(this));
     }
 
+    @Override
+    protected void onDestroy() {
+        if (mConfigSyncBatcher != null) {
+            // Send any changes still waiting in the batch window.
+            mConfigSyncBatcher.flushAll();
+        }
+        if (mWearableAPIHelper != null) {
+            // Sends what is still queued, then disconnects the client and stops the helper's thread.
+            mWearableAPIHelper.onDestroy();
+        }
+        PreferenceWriter.flushAllSync();
+        super.onDestroy();
+    }
 
     @Override
     public void onConfigCompleted(String key, Object value, boolean finish) {
-        // Store the value locally.
-        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(this).edit();
-        SharedPreferencesUtil.putObject(editor, key, value);
-        editor.commit();
-
-        // Send the changed preference to the companion. The path indicates the source of the change.
-        DataMap prefsDataMap = new DataMap();
-        DataMapUtil.putObject(prefsDataMap, key, value);
-
-        // We have to make the data map unique to ensure Wear API sends it to the wearable. This is required because
-        // it is valid for the companion app to send the same config change multiple times if the wearable was
-        // alternately changing the config value to something else.
-        DataMap dataMap = new DataMap();
-        dataMap.putDataMap(SharedPreferencesUtil.DATA_KEY_CONFIG_PREFS, prefsDataMap);
-        dataMap.putLong(SharedPreferencesUtil.DATA_KEY_CONFIG_TIMESTAMP, System.currentTimeMillis());
-
-        mWearableAPIHelper.putDataMap(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_WEARABLE, dataMap, null);
+        // Store the value locally and send it to the companion, batched with any other recent changes. The batch is
+        // stored in one write just before it is sent. The path indicates the source of the change.
+        mConfigSyncBatcher.queue(SharedPreferencesUtil.DATA_PATH_CONFIG_UPDATE_WEARABLE, key, value);
 
         if (finish) {
             finish();
@@ -74,5 +74,20 @@ public class ClockwiseSampleConfigView extends LinearLayout {
             }
         });
 
+        CheckBox sweepCheckBox = (CheckBox) findViewById(R.id.sample_config_checkbox_sweep);
+        TextView sweepTextView = (TextView)findViewById(R.id.sample_config_checkboxname_sweep);
+        sweepTextView.setText(context.getString(R.string.clockwise_sample_sweep_toggle_name));
+
+        boolean sweepActive = PreferenceManager.getDefaultSharedPreferences(context)
+                .getBoolean(ClockwiseSampleMuseumWatchFace.PREF_CLOCKWISE_SAMPLE_SWEEP_SECONDS, false);
+        sweepCheckBox.setChecked(sweepActive);
+
+        sweepCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                mListener.onConfigCompleted(ClockwiseSampleMuseumWatchFace.PREF_CLOCKWISE_SAMPLE_SWEEP_SECONDS, isChecked, false);
+            }
+        });
+
     }
 }
@@ -23,14 +23,18 @@
  */
 package com.ustwo.clockwise.sample.museum;
 
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.text.format.DateUtils;
@@ -41,12 +45,18 @@ import com.ustwo.clockwise.WatchFaceTime;
 import com.ustwo.clockwise.WatchMode;
 import com.ustwo.clockwise.WatchShape;
 import com.ustwo.clockwise.sample.common.ConfigurableConnectedWatchFace;
+import com.ustwo.clockwise.sample.common.graphics.BitmapCache;
+import com.ustwo.clockwise.sample.common.graphics.BitmapCacheLoader;
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import com.ustwo.clockwise.sample.common.graphics.SpecScaler;
+import com.ustwo.clockwise.sample.common.util.ConfigSnapshot;
+import com.ustwo.clockwise.sample.common.util.RenderMetrics;
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
 import com.ustwo.clockwise.sample.museum.R;
-import com.ustwo.clockwise.util.TimeUtil;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Configurable sample watch face for wearable devices
@@ -55,151 +65,87 @@ import java.util.TimeZone;
  */
 public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFace {
 
-    /**
-     * Container class for design specifications
-     */
-    public static class Spec {
-        /**
-         * The design display size, in reference to which specs are created
-         */
-        public static final float SPEC_SIZE = 320.0f;
-
-        /**
-         * The diameter of the center circle
-         */
-        public static final float SPEC_mCircleDiameter = 200.0f;
-
-        // Hand specs
-        /**
-         * Distance from the center of the hands to the display center (radius at which hands travel)
-         */
-        public static final float SPEC_mHandDotDistanceFromCenter = 130.0f;
-
-        /**
-         * Diameter of the hand circles
-         */
-        public static final float SPEC_mHandDotDiameter = 20.0f;
-
-        /**
-         * Stroke thickness of the minute hand dot
-         */
-        public static final float SPEC_mMinuteHandDotStroke = 2.0f;
-
-        /**
-         * Stroke thickness of the minute hand
-         */
-        public static final float SPEC_mSecondHandStroke = 2.0f;
-
-        // Center circle elements specs
-        /**
-         * Position of the time text, in relation to the top-left corner of the inner circle
-         */
-        public static final PointF SPEC_mTimeTextPositionInCircle = new PointF(100f, 64f);
-
-        /**
-         * Position of the date text, in relation to the top-left corner of the inner circle
-         */
-        public static final PointF SPEC_mDateTextPositionInCircle = new PointF(100f, 140f);
-
-        /**
-         * Font size of the time text
-         */
-        public static final float SPEC_mTimeTextSize = 36.0f;
-
-        /**
-         * Font size of the date text
-         */
-        public static final float SPEC_mDateTextSize = 18.0f;
-
-        public static final int SPEC_COLOR_DARK_MINUTES = 0xFFFFFFFF;
-        public static final int SPEC_COLOR_DARK_HOURS = 0xFFFFFFFF;
-        public static final int SPEC_COLOR_DARK_SECONDS = 0xFFe51c23;
-        public static final int SPEC_COLOR_DARK_BACKGROUND = 0xFF212121;
-        public static final int SPEC_COLOR_DARK_TIME_TEXT = 0xFFFFFFFF;
-        public static final int SPEC_COLOR_DARK_DATE_TEXT = 0x42FFFFFF;  // 26% alpha
-
-        public static final int SPEC_COLOR_LIGHT_MINUTES = 0xFF212121;
-        public static final int SPEC_COLOR_LIGHT_HOURS = 0xFF212121;
-        public static final int SPEC_COLOR_LIGHT_SECONDS = 0xFFe51c23;
-        public static final int SPEC_COLOR_LIGHT_BACKGROUND = 0xFFfafafa;
-        public static final int SPEC_COLOR_LIGHT_TIME_TEXT = 0xFF212121;
-        public static final int SPEC_COLOR_LIGHT_DATE_TEXT = 0x8A000000;  // 54% alpha
-
-        public static final int SPEC_COLOR_LOWBIT_BACKGROUND = 0xFF000000;
-        public static final int SPEC_COLOR_LOWBIT_FOREGROUND = 0xFFFFFFFF;
-    }
-
     /**
      * Theme preference name
      */
     public static final String PREF_CLOCKWISE_SAMPLE_LIGHT_THEME = "pref_clockwise_sample_light_theme";
 
     /**
-     * Whether the currently selected theme is light
+     * Sweeping second hand preference name
      */
-    private boolean mIsCurrentThemeLight = false;
+    public static final String PREF_CLOCKWISE_SAMPLE_SWEEP_SECONDS = "pref_clockwise_sample_sweep_seconds";
 
-    // Bitmaps for center circles
-    private Bitmap mBackgroundBitmapDark;
-    private Bitmap mBackgroundBitmapLight;
-    private Bitmap mBackgroundBitmapLowbit;
+    /**
+     * Interactive mode update rate when the second hand sweeps (approx. 30 fps)
+     */
+    private static final long SWEEP_UPDATE_RATE_MS = 33;
 
     /**
-     * The bitmap which will be drawn on next draw cycle
+     * Average draw time above which the sweeping second hand falls back to ticking once a second
      */
-    private Bitmap mCurrentBackgroundBitmap;
+    private static final long SWEEP_FRAME_BUDGET_NANOS = 15 * 1000 * 1000;
 
     /**
-     * The background color which will be drawn on the next draw cycle
+     * Weight of the latest frame in the average draw time
      */
-    private int mCurrentBackgroundColor = Spec.SPEC_COLOR_DARK_BACKGROUND;
+    private static final float SWEEP_FRAME_TIME_SMOOTHING = 0.1f;
 
     /**
-     * Paint used for all bitmaps
+     * Battery level (0-1) below which the sweeping second hand falls back to ticking once a second
      */
-    private Paint mBitmapPaint = new Paint();
+    private static final float SWEEP_MIN_BATTERY_LEVEL = 0.15f;
 
-    private Paint mTimeTextPaint = new Paint();
-    private Paint mDateTextPaint = new Paint();
+    /**
+     * Used to read the sticky battery status broadcast
+     */
+    private static final IntentFilter BATTERY_CHANGED_FILTER = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
 
-    private Paint mMinuteHandDotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private Paint mHourHandDotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private Paint mSecondHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    /**
+     * Maximum size of the decoded center circle bitmaps kept in memory
+     */
+    private static final int BITMAP_CACHE_SIZE_BYTES = 2 * 1024 * 1024;
 
     /**
-     * Position of the center of the watch face, in pixels
+     * Whether the currently selected theme is light
      */
-    private PointF mWatchFaceCenter = new PointF(0f, 0f);
+    private boolean mIsCurrentThemeLight = false;
 
     /**
-     * Current time text (will be drawn on next draw cycle)
+     * The watch mode the current state was refreshed for, so it doesn't have to be queried while drawing
      */
-    private String mTimeText = "00:00";
+    private WatchMode mCurrentWatchMode = WatchMode.INTERACTIVE;
 
     /**
-     * Current date text (will be drawn on next draw cycle)
+     * Cache of the decoded and scaled center circle bitmaps
      */
-    private String mDateText = "";
+    private BitmapCache mBitmapCache = new BitmapCache(BITMAP_CACHE_SIZE_BYTES);
 
     /**
-     * Current date used to to display text.
+     * Decodes center circle backgrounds into {@link #mBitmapCache} off the render thread
      */
-    private Date mDate = new Date();
+    private BitmapCacheLoader mBitmapCacheLoader;
 
     /**
-     * Date format to use to display current date.
+     * Render states indexed by [theme][watch mode], where theme 1 is light. Cleared on each layout, and each state is
+     * built once its background has been loaded; an entry is null until then. Only the interactive states differ
+     * between themes, so both themes share the states of the other modes.
      */
-    private SimpleDateFormat mDateFormat = new SimpleDateFormat("MMM dd");
+    private MuseumRenderState[][] mRenderStates = new MuseumRenderState[2][WatchMode.values().length];
+
+    // Text paints holding the typeface, alignment and size, which the render states' text paints are copied from
+    private Paint mTimeTextPaint = new Paint();
+    private Paint mDateTextPaint = new Paint();
 
     /**
-     * Format 12 hour time (e.g. 3:45)
+     * Creates the render states from the text paints and the scaled stroke widths
      */
-    private SimpleDateFormat mTimeFormat12 = new SimpleDateFormat("h:mm");
+    private MuseumRenderStates mRenderStateFactory = new MuseumRenderStates(mTimeTextPaint, mDateTextPaint);
 
     /**
-     * Format 24 hour time (e.g. 15:45)
+     * Formats the current time text (e.g. 3:45 or 15:45) and date text (e.g. Mar 05), which will be drawn on the
+     * next draw cycle
      */
-    private SimpleDateFormat mTimeFormat24 = new SimpleDateFormat("HH:mm");
+    private TimeTextFormatter mTimeTextFormatter = new TimeTextFormatter(Locale.getDefault());
 
     // Specs scaled to current device dimensions
     private float mCircleDiameter;
@@ -210,18 +156,79 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
     private PointF mTimeTextPositionInCircle = new PointF(0f, 0f);
     private PointF mDateTextPositionInCircle = new PointF(0f, 0f);
 
-    private float mMinuteHandDotStroke;
-    private float mSecondHandStroke;
-
     /**
      * Maximum radius of the second hand
      */
     private float mMaxSecondHandRadius = 0.0f;
 
-    // Degrees at which hands will be drawn on the next draw cycle
-    private float mCurrentDegreesHour = 0.0f;
-    private float mCurrentDegreesMinute = 0.0f;
-    private float mCurrentDegreesSecond = 0.0f;
+    /**
+     * Precomputed hand end points, rebuilt on each layout
+     */
+    private HandGeometry mHandGeometry = new HandGeometry();
+
+    /**
+     * Composites the frames
+     */
+    private MuseumFaceRenderer mRenderer = new MuseumFaceRenderer(mTimeTextFormatter, mHandGeometry,
+            MuseumSpec.SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO);
+
+    /**
+     * Updates the text, hands and burn-in offset on each time change
+     */
+    private MuseumFaceTicker mTicker = new MuseumFaceTicker(mTimeTextFormatter, mHandGeometry, mRenderer);
+
+    /**
+     * Whether the user enabled the sweeping second hand
+     */
+    private boolean mIsSweepEnabled = false;
+
+    /**
+     * Whether the sweeping second hand was disabled because frames took longer than the budget. Cleared when the watch
+     * face returns to interactive mode, so a slow period does not disable the sweep for good.
+     */
+    private boolean mIsSweepOverBudget = false;
+
+    /**
+     * Whether the sweeping second hand was disabled because the battery is low
+     */
+    private boolean mIsBatteryLow = false;
+
+    /**
+     * Checks the battery level once a minute while the second hand could sweep: the sweep is enabled and the watch face
+     * is interactive and visible. Runs on its own rather than from
+     * {@link #onTimeChanged(WatchFaceTime, WatchFaceTime)}, because reading the battery status allocates. The watch
+     * face only ticks while it is visible, so the check stops when there was no tick since it last ran, and the next
+     * tick starts it again.
+     */
+    private Handler mBatteryCheckHandler;
+    private boolean mIsBatteryCheckScheduled = false;
+    private boolean mHasTickedSinceBatteryCheck = false;
+    private final Runnable mBatteryCheck = new Runnable() {
+        @Override
+        public void run() {
+            if(!mHasTickedSinceBatteryCheck) {
+                mIsBatteryCheckScheduled = false;
+                return;
+            }
+            mHasTickedSinceBatteryCheck = false;
+            updateBatteryState();
+            mBatteryCheckHandler.postDelayed(this, DateUtils.MINUTE_IN_MILLIS);
+        }
+    };
+
+    /**
+     * Moving average of the draw time while sweeping, in nanoseconds
+     */
+    private float mSweepAverageFrameNanos = 0f;
+
+    /**
+     * Time at which the second hand started sweeping, or -1 if it isn't sweeping
+     */
+    private long mSweepStartTimeMs = -1;
+
+    // Frames requested by the sweep update rate and actually drawn, over all sweep periods
+    private long mSweepFramesRequested = 0;
+    private long mSweepFramesDelivered = 0;
 
     /**
      * Scales a float dimension from a spec value to the specified screen size
@@ -230,7 +237,7 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
      * @return The scaled dimension
      */
     public static float getFloatValueFromSpec(float specValue, float currentRenderSize) {
-        return (specValue / Spec.SPEC_SIZE) * currentRenderSize;
+        return SpecScaler.scale(specValue, MuseumSpec.SPEC_SIZE, currentRenderSize);
     }
 
     /**
@@ -240,10 +247,7 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
      * @param currentRenderSize The screen size
      */
     public static void applyPointValueFromSpec(PointF output, PointF specValue, float currentRenderSize) {
-        if(output == null || specValue == null) {
-            return;
-        }
-        output.set(getFloatValueFromSpec(specValue.x, currentRenderSize), getFloatValueFromSpec(specValue.y, currentRenderSize));
+        SpecScaler.scale(output, specValue, MuseumSpec.SPEC_SIZE, currentRenderSize);
     }
 
     /**
@@ -262,61 +266,79 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
     @Override
     public void onCreate() {
         super.onCreate();
-        updateConfiguration(PreferenceManager.getDefaultSharedPreferences(this));
+        mBatteryCheckHandler = new Handler();
+        mBitmapCacheLoader = new BitmapCacheLoader(mBitmapCache, getResources());
+        Map<String, Object> configSnapshot = readConfigSnapshot();
+        if(configSnapshot != null) {
+            applyConfiguration(
+                    ConfigSnapshot.getBoolean(configSnapshot, PREF_CLOCKWISE_SAMPLE_LIGHT_THEME, false),
+                    ConfigSnapshot.getBoolean(configSnapshot, PREF_CLOCKWISE_SAMPLE_SWEEP_SECONDS, false));
+        } else {
+            updateConfiguration(PreferenceManager.getDefaultSharedPreferences(this));
+        }
 
         mTimeTextPaint.setTypeface(Typeface.create("sans-serif-light", Typeface.NORMAL));
         mTimeTextPaint.setTextAlign(Paint.Align.CENTER);
 
         mDateTextPaint.setTypeface(Typeface.create("sans-serif", Typeface.NORMAL));
         mDateTextPaint.setTextAlign(Paint.Align.CENTER);
+    }
 
-        mBitmapPaint.setAntiAlias(true);
-        mBitmapPaint.setFilterBitmap(true);
-        mBitmapPaint.setDither(true);
+    @Override
+    public void onDestroy() {
+        mBatteryCheckHandler.removeCallbacks(mBatteryCheck);
+        mBitmapCacheLoader.shutdown();
+        super.onDestroy();
     }
 
     @Override
     protected void onLayout(WatchShape watchShape, Rect rect, WindowInsets windowInsets) {
+        long startNanos = startPhase(RenderMetrics.Phase.LAYOUT);
+
         // Convert spec dimensions to current screen size
         float renderSize = Math.min(getWidth(), getHeight());
 
-        mWatchFaceCenter.set(getWidth() * 0.5f, getHeight() * 0.5f);
+        mTicker.setLayout(getWidth(), getHeight(), getFloatValueFromSpec(MuseumSpec.SPEC_mBurnInShift, renderSize));
 
-        mCircleDiameter = getFloatValueFromSpec(Spec.SPEC_mCircleDiameter, renderSize);
+        mCircleDiameter = getFloatValueFromSpec(MuseumSpec.SPEC_mCircleDiameter, renderSize);
 
-        mHandDotDistanceFromCenter = getFloatValueFromSpec(Spec.SPEC_mHandDotDistanceFromCenter, renderSize);
-        mHandDotDiameter = getFloatValueFromSpec(Spec.SPEC_mHandDotDiameter, renderSize);
+        mHandDotDistanceFromCenter = getFloatValueFromSpec(MuseumSpec.SPEC_mHandDotDistanceFromCenter, renderSize);
+        mHandDotDiameter = getFloatValueFromSpec(MuseumSpec.SPEC_mHandDotDiameter, renderSize);
 
-        applyPointValueFromSpec(mTimeTextPositionInCircle, Spec.SPEC_mTimeTextPositionInCircle, renderSize);
-        applyPointValueFromSpec(mDateTextPositionInCircle, Spec.SPEC_mDateTextPositionInCircle, renderSize);
+        applyPointValueFromSpec(mTimeTextPositionInCircle, MuseumSpec.SPEC_mTimeTextPositionInCircle, renderSize);
+        applyPointValueFromSpec(mDateTextPositionInCircle, MuseumSpec.SPEC_mDateTextPositionInCircle, renderSize);
 
-        float timeTextSize = getFloatValueFromSpec(Spec.SPEC_mTimeTextSize, renderSize);
-        float dateTextSize = getFloatValueFromSpec(Spec.SPEC_mDateTextSize, renderSize);
+        float timeTextSize = getFloatValueFromSpec(MuseumSpec.SPEC_mTimeTextSize, renderSize);
+        float dateTextSize = getFloatValueFromSpec(MuseumSpec.SPEC_mDateTextSize, renderSize);
 
         mTimeTextPaint.setTextSize(timeTextSize);
         mDateTextPaint.setTextSize(dateTextSize);
 
-        mMinuteHandDotStroke = getFloatValueFromSpec(Spec.SPEC_mMinuteHandDotStroke, renderSize);
-        mSecondHandStroke = getFloatValueFromSpec(Spec.SPEC_mSecondHandStroke, renderSize);
-
-        mMinuteHandDotPaint.setStyle(Paint.Style.STROKE);
-        mMinuteHandDotPaint.setStrokeWidth(mMinuteHandDotStroke);
+        mRenderStateFactory.setStrokeWidths(getFloatValueFromSpec(MuseumSpec.SPEC_mSecondHandStroke, renderSize),
+                getFloatValueFromSpec(MuseumSpec.SPEC_mMinuteHandDotStroke, renderSize),
+                getFloatValueFromSpec(MuseumSpec.SPEC_mBurnInOutlineStroke, renderSize));
 
-        mSecondHandPaint.setStyle(Paint.Style.STROKE);
-        mSecondHandPaint.setStrokeWidth(mSecondHandStroke);
-
-        mBackgroundBitmapLowbit = BitmapFactory.decodeResource(getResources(), R.drawable.sample_bg_1bit);
-        mBackgroundBitmapLowbit = Bitmap.createScaledBitmap(mBackgroundBitmapLowbit, (int)mCircleDiameter, (int)mCircleDiameter, true);
+        mRenderer.setLayout(getWidth(), getHeight(), mCircleDiameter, mHandDotDiameter,
+                mTimeTextPositionInCircle, mDateTextPositionInCircle);
 
         float halfWidth = getWidth() * 0.5f;
         float halfHeight = getHeight() * 0.5f;
         mMaxSecondHandRadius = (float)Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
 
+        mHandGeometry.setDimensions(mCircleDiameter * 0.5f, mMaxSecondHandRadius, mHandDotDistanceFromCenter);
+
+        rebuildRenderStates();
         refreshCurrentState();
+        loadBackgroundBitmaps();
 
+        mTicker.set24HourFormat(is24HourFormat());
         WatchFaceTime time = getTime();
         updateDateAndTimeText(time);
         updateHandPositions(time);
+
+        endPhase(RenderMetrics.Phase.LAYOUT, startNanos);
+
+        publishDisplayCapability(Math.round(mCircleDiameter));
     }
 
     @Override
@@ -325,8 +347,104 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
     }
 
     private void updateConfiguration(SharedPreferences preferences) {
-        boolean isLightTheme = preferences.getBoolean(PREF_CLOCKWISE_SAMPLE_LIGHT_THEME, false);
+        applyConfiguration(preferences.getBoolean(PREF_CLOCKWISE_SAMPLE_LIGHT_THEME, false),
+                preferences.getBoolean(PREF_CLOCKWISE_SAMPLE_SWEEP_SECONDS, false));
+    }
+
+    private void applyConfiguration(boolean isLightTheme, boolean isSweepEnabled) {
         setCurrentThemeLight(isLightTheme);
+
+        if(mIsSweepEnabled != isSweepEnabled) {
+            mIsSweepEnabled = isSweepEnabled;
+            mIsSweepOverBudget = false;
+            mSweepAverageFrameNanos = 0f;
+            updateSweepState();
+
+            if(!mIsSweepEnabled) {
+                mIsBatteryLow = false;
+            }
+            updateBatteryCheck();
+        }
+    }
+
+    /**
+     * @return true if the battery level has to be checked, because the second hand could sweep
+     */
+    private boolean isBatteryCheckNeeded() {
+        return mIsSweepEnabled && mCurrentWatchMode == WatchMode.INTERACTIVE;
+    }
+
+    /**
+     * Starts or stops the battery check when the sweep setting or the watch mode changes
+     */
+    private void updateBatteryCheck() {
+        if(isBatteryCheckNeeded()) {
+            if(!mIsBatteryCheckScheduled) {
+                mIsBatteryCheckScheduled = true;
+                mHasTickedSinceBatteryCheck = true;
+                mBatteryCheckHandler.post(mBatteryCheck);
+            }
+        } else if(mIsBatteryCheckScheduled) {
+            mBatteryCheckHandler.removeCallbacks(mBatteryCheck);
+            mIsBatteryCheckScheduled = false;
+        }
+    }
+
+    /**
+     * @return true if the second hand currently sweeps, rather than ticking once a second
+     */
+    private boolean isSweepActive() {
+        return mIsSweepEnabled && !mIsSweepOverBudget && !mIsBatteryLow
+                && mCurrentWatchMode == WatchMode.INTERACTIVE;
+    }
+
+    /**
+     * Starts or stops counting requested sweep frames when the sweep state changes
+     */
+    private void updateSweepState() {
+        boolean isSweepActive = isSweepActive();
+
+        if(isSweepActive && mSweepStartTimeMs < 0) {
+            mSweepStartTimeMs = SystemClock.elapsedRealtime();
+        } else if(!isSweepActive && mSweepStartTimeMs >= 0) {
+            mSweepFramesRequested += (SystemClock.elapsedRealtime() - mSweepStartTimeMs) / SWEEP_UPDATE_RATE_MS;
+            mSweepStartTimeMs = -1;
+        }
+    }
+
+    /**
+     * Checks the battery level, and stops sweeping the second hand if it is low
+     */
+    private void updateBatteryState() {
+        Intent batteryStatus = registerReceiver(null, BATTERY_CHANGED_FILTER);
+        if(batteryStatus == null) {
+            return;
+        }
+
+        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if(level >= 0 && scale > 0) {
+            mIsBatteryLow = level / (float)scale < SWEEP_MIN_BATTERY_LEVEL;
+            updateSweepState();
+        }
+    }
+
+    /**
+     * @return The number of frames the sweeping second hand asked for, based on its update rate
+     */
+    public long getSweepFramesRequested() {
+        long framesRequested = mSweepFramesRequested;
+        if(mSweepStartTimeMs >= 0) {
+            framesRequested += (SystemClock.elapsedRealtime() - mSweepStartTimeMs) / SWEEP_UPDATE_RATE_MS;
+        }
+        return framesRequested;
+    }
+
+    /**
+     * @return The number of frames actually drawn while the second hand was sweeping
+     */
+    public long getSweepFramesDelivered() {
+        return mSweepFramesDelivered;
     }
 
     @Override
@@ -347,12 +465,20 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
 
     @Override
     protected long getInteractiveModeUpdateRate() {
-        return DateUtils.SECOND_IN_MILLIS;
+        return isSweepActive() ? SWEEP_UPDATE_RATE_MS : DateUtils.SECOND_IN_MILLIS;
     }
 
     @Override
     public void onWatchModeChanged(WatchMode watchMode) {
         refreshCurrentState();
+
+        if(watchMode == WatchMode.INTERACTIVE) {
+            // Give the sweep another chance, the frames which were over budget may have been a passing load.
+            mIsSweepOverBudget = false;
+            mSweepAverageFrameNanos = 0f;
+        }
+        updateSweepState();
+        updateBatteryCheck();
     }
 
 
@@ -360,8 +486,7 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
     protected void on24HourFormatChanged(boolean is24HourFormat) {
         // Handle 24-hour format setting changes (if using digital time display)
 
-        mTimeText = is24HourFormat() ? mTimeFormat24.format(mDate) :
-                mTimeFormat12.format(mDate);
+        mTicker.set24HourFormat(is24HourFormat);
     }
 
     /*
@@ -376,172 +501,227 @@ public class ClockwiseSampleMuseumWatchFace extends ConfigurableConnectedWatchFa
 
     @Override
     protected void onTimeChanged(WatchFaceTime oldTime, WatchFaceTime newTime) {
-        if(newTime.hasTimeZoneChanged(oldTime)) {
-            TimeZone timeZone = TimeZone.getTimeZone(newTime.timezone);
-            mTimeFormat12.setTimeZone(timeZone);
-            mTimeFormat24.setTimeZone(timeZone);
-            mDateFormat.setTimeZone(timeZone);
-        }
+        // Ticking means the watch face is visible, so restart the battery check if it stopped while it was hidden
+        mHasTickedSinceBatteryCheck = true;
+        updateBatteryCheck();
+
+        long startNanos = startPhase(RenderMetrics.Phase.TIME_CHANGED);
 
-        if(newTime.hasMinuteChanged(oldTime) || newTime.hasHourChanged(oldTime) || newTime.hasDateChanged(oldTime)) {
+        // WatchFaceTime fields are already in the current time zone, so a time zone change only requires a text update
+        if(newTime.hasMinuteChanged(oldTime) || newTime.hasHourChanged(oldTime) || newTime.hasDateChanged(oldTime)
+                || newTime.hasTimeZoneChanged(oldTime)) {
             updateDateAndTimeText(newTime);
         }
         updateHandPositions(newTime);
+
+        endPhase(RenderMetrics.Phase.TIME_CHANGED, startNanos);
     }
 
     private void updateHandPositions(WatchFaceTime timeStamp) {
-        mCurrentDegreesHour = TimeUtil.getHourDegrees(timeStamp);
-        mCurrentDegreesMinute = TimeUtil.getMinuteDegrees(timeStamp);
-        mCurrentDegreesSecond = TimeUtil.getSecondDegrees(timeStamp);
+        if(isSweepActive()) {
+            float millis = System.currentTimeMillis() % DateUtils.SECOND_IN_MILLIS;
+            mTicker.updateHandPositions(timeStamp.hour, timeStamp.minute, timeStamp.second,
+                    millis / DateUtils.SECOND_IN_MILLIS);
+        } else {
+            mTicker.updateHandPositions(timeStamp.hour, timeStamp.minute, timeStamp.second);
+        }
     }
 
     private void updateDateAndTimeText(WatchFaceTime timeStamp) {
-        mDate.setTime(timeStamp.toMillis(false));
+        mTicker.updateDateAndTimeText(timeStamp.month, timeStamp.monthDay, timeStamp.hour, timeStamp.minute);
+    }
 
-        mDateText = mDateFormat.format(mDate);
-        mTimeText = is24HourFormat() ? mTimeFormat24.format(mDate) :
-                mTimeFormat12.format(mDate);
+    /**
+     * @return The number of lit pixels in the most recent burn-in protection frame
+     */
+    public int getLastLitPixelCount() {
+        return mRenderer.getLastLitPixelCount();
     }
 
+    /**
+     * Switches the renderer to the render state of the current theme and watch mode. If that state is not ready yet
+     * (its background is still being loaded), the previous state is kept until it is.
+     */
     private void refreshCurrentState() {
-        WatchMode currentWatchMode = getCurrentWatchMode();
+        long startNanos = startPhase(RenderMetrics.Phase.REFRESH_STATE);
+        mCurrentWatchMode = getCurrentWatchMode();
 
-        switch(currentWatchMode) {
-            case INTERACTIVE:
-                applyInteractiveState();
-                break;
-            case AMBIENT:
-                // Non-low bit ambient mode
-                applyAmbientState();
-                break;
-            default:
-                // Other ambient modes (LOW_BIT, BURN_IN, LOW_BIT_BURN_IN)
-                applyLowBitState();
-                break;
+        MuseumRenderState renderState = mRenderStates[mIsCurrentThemeLight ? 1 : 0][mCurrentWatchMode.ordinal()];
+        if(renderState != null) {
+            mRenderer.setRenderState(renderState);
         }
-    }
+        mTicker.updateWatchFaceCenter();
 
+        endPhase(RenderMetrics.Phase.REFRESH_STATE, startNanos);
+    }
 
     /**
-     * Apply interactive-mode paint colors and background images
+     * Starts decoding the center circle backgrounds at the current circle diameter on a background thread, the
+     * current theme's first. The states using each background are built as soon as it is ready.
      */
-    private void applyInteractiveState() {
-        if((int)mCircleDiameter <= 0) {
+    private void loadBackgroundBitmaps() {
+        final int size = (int)mCircleDiameter;
+        if(size <= 0) {
             return;
         }
 
-        if(mIsCurrentThemeLight) {
-            if(mBackgroundBitmapLight == null || mBackgroundBitmapLight.getWidth() != (int)mCircleDiameter) {
-                mBackgroundBitmapLight = BitmapFactory.decodeResource(getResources(), R.drawable.sample_bg_light);
-                mBackgroundBitmapLight = Bitmap.createScaledBitmap(mBackgroundBitmapLight, (int) mCircleDiameter, (int) mCircleDiameter, true);
+        BitmapCacheLoader.OnBitmapsLoadedListener listener = new BitmapCacheLoader.OnBitmapsLoadedListener() {
+            @Override
+            public void onBitmapsLoaded() {
+                // Loaded for an earlier layout
+                if(size != (int)mCircleDiameter) {
+                    return;
+                }
+
+                buildRenderStates();
+                refreshCurrentState();
+                invalidate();
             }
+        };
+
+        int currentThemeBackground = mIsCurrentThemeLight ? R.drawable.sample_bg_light : R.drawable.sample_bg_dark;
+        int otherThemeBackground = mIsCurrentThemeLight ? R.drawable.sample_bg_dark : R.drawable.sample_bg_light;
+        mBitmapCacheLoader.load(new int[]{currentThemeBackground}, size, size, Bitmap.Config.ARGB_8888, listener);
+        mBitmapCacheLoader.load(new int[]{R.drawable.sample_bg_1bit}, size, size, Bitmap.Config.ALPHA_8, listener);
+        mBitmapCacheLoader.load(new int[]{otherThemeBackground}, size, size, Bitmap.Config.ARGB_8888, listener);
+    }
 
-            mCurrentBackgroundColor = Spec.SPEC_COLOR_LIGHT_BACKGROUND;
-            mCurrentBackgroundBitmap = mBackgroundBitmapLight;
-            mTimeTextPaint.setColor(Spec.SPEC_COLOR_LIGHT_TIME_TEXT);
-            mDateTextPaint.setColor(Spec.SPEC_COLOR_LIGHT_DATE_TEXT);
-            mSecondHandPaint.setColor(Spec.SPEC_COLOR_LIGHT_SECONDS);
-            mMinuteHandDotPaint.setColor(Spec.SPEC_COLOR_LIGHT_MINUTES);
-            mHourHandDotPaint.setColor(Spec.SPEC_COLOR_LIGHT_HOURS);
+    /**
+     * Clears the render states of the previous layout, and builds those of the current one which don't have to wait
+     * for a background. Backgrounds are never decoded here: until the current state's background is loaded, a
+     * placeholder drawing only its background color is used.
+     */
+    private void rebuildRenderStates() {
+        for (MuseumRenderState[] themeStates : mRenderStates) {
+            Arrays.fill(themeStates, null);
         }
-        else {
-            if(mBackgroundBitmapDark == null || mBackgroundBitmapDark.getWidth() != (int)mCircleDiameter) {
-                mBackgroundBitmapDark = BitmapFactory.decodeResource(getResources(), R.drawable.sample_bg_dark);
-                mBackgroundBitmapDark = Bitmap.createScaledBitmap(mBackgroundBitmapDark, (int) mCircleDiameter, (int) mCircleDiameter, true);
-            }
 
-            mCurrentBackgroundColor = Spec.SPEC_COLOR_DARK_BACKGROUND;
-            mCurrentBackgroundBitmap = mBackgroundBitmapDark;
-            mTimeTextPaint.setColor(Spec.SPEC_COLOR_DARK_TIME_TEXT);
-            mDateTextPaint.setColor(Spec.SPEC_COLOR_DARK_DATE_TEXT);
-            mSecondHandPaint.setColor(Spec.SPEC_COLOR_DARK_SECONDS);
-            mMinuteHandDotPaint.setColor(Spec.SPEC_COLOR_DARK_MINUTES);
-            mHourHandDotPaint.setColor(Spec.SPEC_COLOR_DARK_HOURS);
+        if((int)mCircleDiameter <= 0) {
+            return;
+        }
+
+        buildRenderStates();
+
+        int theme = mIsCurrentThemeLight ? 1 : 0;
+        WatchMode watchMode = getCurrentWatchMode();
+        if(mRenderStates[theme][watchMode.ordinal()] == null) {
+            mRenderStates[theme][watchMode.ordinal()] = createRenderState(mIsCurrentThemeLight, watchMode, null);
         }
     }
 
     /**
-     * Apply low-bit ambient mode paint colors and background images
+     * Builds each render state which hasn't been built yet for the current layout, and whose background is cached.
+     * Placeholders are replaced.
      */
-    private void applyLowBitState() {
-        mCurrentBackgroundColor = Spec.SPEC_COLOR_LOWBIT_BACKGROUND;
-        mCurrentBackgroundBitmap = mBackgroundBitmapLowbit;
-        mTimeTextPaint.setColor(Spec.SPEC_COLOR_LOWBIT_FOREGROUND);
-        mDateTextPaint.setColor(Spec.SPEC_COLOR_LOWBIT_FOREGROUND);
-        mMinuteHandDotPaint.setColor(Spec.SPEC_COLOR_LOWBIT_FOREGROUND);
-        mHourHandDotPaint.setColor(Spec.SPEC_COLOR_LOWBIT_FOREGROUND);
+    private void buildRenderStates() {
+        for (int theme = 0; theme < mRenderStates.length; theme++) {
+            for (WatchMode watchMode : WatchMode.values()) {
+                if(!isRenderStateBuilt(theme, watchMode)) {
+                    buildRenderState(theme, watchMode);
+                }
+            }
+        }
     }
 
     /**
-     * Apply ambient-mode (non-low bit) paint colors and background images.
-     * This mode is similar to the dark interactive mode, but doesn't show the second hand.
+     * @return true if the render state has been built with its background, false if it is missing or a placeholder
      */
-    private void applyAmbientState() {
-        if((int)mCircleDiameter <= 0) {
+    private boolean isRenderStateBuilt(int theme, WatchMode watchMode) {
+        MuseumRenderState renderState = mRenderStates[theme][watchMode.ordinal()];
+        return renderState != null
+                && (renderState.backgroundBitmap != null || getBackgroundResource(theme == 1, watchMode) == 0);
+    }
+
+    private void buildRenderState(int theme, WatchMode watchMode) {
+        boolean isLightTheme = theme == 1;
+        int mode = watchMode.ordinal();
+
+        if(watchMode != WatchMode.INTERACTIVE && isRenderStateBuilt(1 - theme, watchMode)) {
+            mRenderStates[theme][mode] = mRenderStates[1 - theme][mode];
             return;
         }
 
-        if(mBackgroundBitmapDark == null || mBackgroundBitmapDark.getWidth() != (int)mCircleDiameter) {
-            mBackgroundBitmapDark = BitmapFactory.decodeResource(getResources(), R.drawable.sample_bg_dark);
-            mBackgroundBitmapDark = Bitmap.createScaledBitmap(mBackgroundBitmapDark, (int) mCircleDiameter, (int) mCircleDiameter, true);
+        Bitmap background = null;
+        int resId = getBackgroundResource(isLightTheme, watchMode);
+        if(resId != 0) {
+            int size = (int)mCircleDiameter;
+            background = mBitmapCache.peek(resId, size, size, getBackgroundConfig(watchMode));
+            if(background == null) {
+                // Still loading
+                return;
+            }
         }
 
-        mCurrentBackgroundColor = Spec.SPEC_COLOR_DARK_BACKGROUND;
-        mCurrentBackgroundBitmap = mBackgroundBitmapDark;
-        mTimeTextPaint.setColor(Spec.SPEC_COLOR_DARK_TIME_TEXT);
-        mDateTextPaint.setColor(Spec.SPEC_COLOR_DARK_DATE_TEXT);
-        mMinuteHandDotPaint.setColor(Spec.SPEC_COLOR_DARK_MINUTES);
-        mHourHandDotPaint.setColor(Spec.SPEC_COLOR_DARK_HOURS);
+        mRenderStates[theme][mode] = createRenderState(isLightTheme, watchMode, background);
     }
 
-    @Override
-    public void onDraw(Canvas canvas) {
-        int backgroundBitmapPositionX = -mCurrentBackgroundBitmap.getWidth() / 2;
-        int backgroundBitmapPositionY = -mCurrentBackgroundBitmap.getHeight() / 2;
-
-        canvas.save();
-        // To simplify drawing, we apply a translation to the canvas,
-        // so all render operations can be in reference to the center of the face
-        canvas.translate(mWatchFaceCenter.x, mWatchFaceCenter.y);
-        canvas.drawColor(mCurrentBackgroundColor);
-        canvas.drawBitmap(mCurrentBackgroundBitmap, backgroundBitmapPositionX, backgroundBitmapPositionY, mBitmapPaint);
-        canvas.drawText(mTimeText, backgroundBitmapPositionX + mTimeTextPositionInCircle.x, backgroundBitmapPositionY + mTimeTextPositionInCircle.y, mTimeTextPaint);
-        canvas.drawText(mDateText, backgroundBitmapPositionX + mDateTextPositionInCircle.x, backgroundBitmapPositionY + mDateTextPositionInCircle.y, mDateTextPaint);
-        canvas.restore();
-
-        // Draw the second hand in interactive mode only, because other modes don't
-        // update/redraw each second.
-        if(getCurrentWatchMode() == WatchMode.INTERACTIVE) {
-            drawSecondHand(canvas);
+    /**
+     * @param background The center circle background of the theme and watch mode, or null if it draws none or it is
+     *                   not loaded yet
+     */
+    private MuseumRenderState createRenderState(boolean isLightTheme, WatchMode watchMode, Bitmap background) {
+        switch(watchMode) {
+            case INTERACTIVE:
+                return mRenderStateFactory.createInteractiveState(isLightTheme, background);
+            case AMBIENT:
+                return mRenderStateFactory.createAmbientState(background);
+            case LOW_BIT:
+                return mRenderStateFactory.createLowBitState(background);
+            case BURN_IN:
+                return mRenderStateFactory.createBurnInState(true);
+            default:
+                return mRenderStateFactory.createBurnInState(false);
         }
-
-        drawMinuteHand(canvas);
-        drawHourHand(canvas);
     }
 
-    private void drawSecondHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mCurrentDegreesSecond, mWatchFaceCenter.x, mWatchFaceCenter.y);
-        float origin = mCircleDiameter * 0.5f;
-        canvas.drawLine(mWatchFaceCenter.x, mWatchFaceCenter.y - origin,
-                mWatchFaceCenter.x, mWatchFaceCenter.y - mMaxSecondHandRadius, mSecondHandPaint);
-        canvas.restore();
+    /**
+     * @return The drawable resource of the center circle background drawn in the given theme and watch mode, or 0 if
+     * the mode draws none
+     */
+    private static int getBackgroundResource(boolean isLightTheme, WatchMode watchMode) {
+        switch(watchMode) {
+            case INTERACTIVE:
+                return isLightTheme ? R.drawable.sample_bg_light : R.drawable.sample_bg_dark;
+            case AMBIENT:
+                return R.drawable.sample_bg_dark;
+            case LOW_BIT:
+                return R.drawable.sample_bg_1bit;
+            default:
+                return 0;
+        }
     }
 
-    private void drawMinuteHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mCurrentDegreesMinute, mWatchFaceCenter.x, mWatchFaceCenter.y);
-        canvas.drawCircle(mWatchFaceCenter.x, mWatchFaceCenter.y - mHandDotDistanceFromCenter,
-                mHandDotDiameter * 0.5f, mMinuteHandDotPaint);
-        canvas.restore();
+    /**
+     * @return The config the center circle background of the given watch mode is decoded to. The low-bit background
+     * is stored as an alpha mask.
+     */
+    private static Bitmap.Config getBackgroundConfig(WatchMode watchMode) {
+        return watchMode == WatchMode.LOW_BIT ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
     }
 
-    private void drawHourHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mCurrentDegreesHour, mWatchFaceCenter.x, mWatchFaceCenter.y);
-        canvas.drawCircle(mWatchFaceCenter.x, mWatchFaceCenter.y - mHandDotDistanceFromCenter,
-                mHandDotDiameter * 0.5f, mHourHandDotPaint);
-        canvas.restore();
+    @Override
+    public void onDraw(Canvas canvas) {
+        long startNanos = startPhase(RenderMetrics.Phase.DRAW);
+        mRenderer.draw(canvas);
+        long frameNanos = endPhase(RenderMetrics.Phase.DRAW, startNanos);
+
+        if(isSweepActive()) {
+            onSweepFrameDrawn(frameNanos);
+        }
     }
 
+    /**
+     * Records a frame drawn while sweeping, and stops sweeping if frames take longer than the budget on average
+     * @param frameNanos Time taken to draw the frame
+     */
+    private void onSweepFrameDrawn(long frameNanos) {
+        mSweepFramesDelivered++;
+        mSweepAverageFrameNanos = (mSweepAverageFrameNanos == 0f) ? frameNanos :
+                mSweepAverageFrameNanos + SWEEP_FRAME_TIME_SMOOTHING * (frameNanos - mSweepAverageFrameNanos);
+
+        if(mSweepAverageFrameNanos > SWEEP_FRAME_BUDGET_NANOS) {
+            mIsSweepOverBudget = true;
+            updateSweepState();
+        }
+    }
 }
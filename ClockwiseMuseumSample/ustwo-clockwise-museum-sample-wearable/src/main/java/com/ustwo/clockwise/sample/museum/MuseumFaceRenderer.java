@@ -0,0 +1,315 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PointF;
+
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import com.ustwo.clockwise.sample.common.graphics.LitPixelCounter;
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
+
+/**
+ * Draws frames of the museum face. The face decides what to show for the current time, theme and watch mode, and
+ * hands it to the renderer; the renderer only composites it. Paints and backgrounds come from a
+ * {@link MuseumRenderState}, so a mode change is a single {@link #setRenderState(MuseumRenderState)}.
+ * <p/>
+ * Everything that changes at most once a minute is drawn into a static layer, and each frame is that layer with the
+ * hands drawn over it. The canvas passed to onDraw does not keep the previous frame, so it is covered in full every
+ * frame either way; one opaque blit is the cheapest way to do that.
+ * <p/>
+ * Depends on nothing but the graphics classes, so the same drawing code can run headless off-device.
+ */
+public class MuseumFaceRenderer {
+
+    private final TimeTextFormatter mTimeTextFormatter;
+    private final HandGeometry mHandGeometry;
+
+    /**
+     * Maximum fraction of display pixels which may be lit in burn-in protection mode
+     */
+    private final float mMaxLitPixelRatio;
+
+    /**
+     * Full-screen layer containing everything that changes at most once a minute (background color, center circle
+     * and time/date text). In interactive mode the hands are drawn on top of it each frame. In the other modes it
+     * also contains the minute and hour hands, as they only move once a minute, and it is the whole frame.
+     */
+    private Bitmap mStaticLayerBitmap;
+
+    /**
+     * Canvas used to composite into {@link #mStaticLayerBitmap}
+     */
+    private Canvas mStaticLayerCanvas = new Canvas();
+
+    /**
+     * Whether {@link #mStaticLayerBitmap} reflects the current theme, watch mode and time/date text
+     */
+    private boolean mIsStaticLayerValid = false;
+
+    // Positions at which the minute and hour hands were drawn into the static layer, outside interactive mode
+    private int mLayerHourPosition = -1;
+    private int mLayerMinutePosition = -1;
+
+    /**
+     * Buffer used when counting lit pixels, one frame row wide
+     */
+    private int[] mPixelRowBuffer;
+
+    /**
+     * Number of lit pixels in the most recent burn-in protection frame
+     */
+    private int mLastLitPixelCount = 0;
+
+    // Layout, scaled to the current device dimensions
+    private float mCircleDiameter;
+    private float mHandDotDiameter;
+    private PointF mTimeTextPositionInCircle = new PointF(0f, 0f);
+    private PointF mDateTextPositionInCircle = new PointF(0f, 0f);
+
+    /**
+     * Paints and background to draw with, or null before the face provided one
+     */
+    private MuseumRenderState mRenderState;
+
+    /**
+     * Whether the date text is hidden, because showing it in burn-in protection mode exceeded the lit pixel budget
+     */
+    private boolean mIsBurnInDateHidden = false;
+
+    private PointF mWatchFaceCenter = new PointF(0f, 0f);
+    private int mCurrentHourPosition = 0;
+    private int mCurrentMinutePosition = 0;
+
+    /**
+     * Second hand end points relative to the face center, {startX, startY, endX, endY}
+     */
+    private float[] mSecondHandPoints = new float[4];
+
+    /**
+     * @param timeTextFormatter Holds the time and date text to draw
+     * @param handGeometry Hand positions, rebuilt by the face on layout
+     * @param maxLitPixelRatio Maximum fraction of display pixels which may be lit in burn-in protection mode
+     */
+    public MuseumFaceRenderer(TimeTextFormatter timeTextFormatter, HandGeometry handGeometry,
+            float maxLitPixelRatio) {
+        mTimeTextFormatter = timeTextFormatter;
+        mHandGeometry = handGeometry;
+        mMaxLitPixelRatio = maxLitPixelRatio;
+    }
+
+    /**
+     * Sets the layout and (re)allocates the static layer if the size changed
+     */
+    public void setLayout(int width, int height, float circleDiameter, float handDotDiameter,
+            PointF timeTextPositionInCircle, PointF dateTextPositionInCircle) {
+        mCircleDiameter = circleDiameter;
+        mHandDotDiameter = handDotDiameter;
+        mTimeTextPositionInCircle.set(timeTextPositionInCircle.x, timeTextPositionInCircle.y);
+        mDateTextPositionInCircle.set(dateTextPositionInCircle.x, dateTextPositionInCircle.y);
+
+        mPixelRowBuffer = new int[width];
+
+        if(mStaticLayerBitmap == null || mStaticLayerBitmap.getWidth() != width
+                || mStaticLayerBitmap.getHeight() != height) {
+            if(mStaticLayerBitmap != null) {
+                mStaticLayerBitmap.recycle();
+            }
+            mStaticLayerBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mStaticLayerCanvas.setBitmap(mStaticLayerBitmap);
+        }
+        invalidateStaticLayer();
+    }
+
+    /**
+     * Sets the paints and background to draw with, and invalidates the static layer if they changed
+     */
+    public void setRenderState(MuseumRenderState renderState) {
+        if(mRenderState != renderState) {
+            mRenderState = renderState;
+            invalidateStaticLayer();
+        }
+    }
+
+    /**
+     * @return The paints and background drawn with, or null if none was set yet
+     */
+    public MuseumRenderState getRenderState() {
+        return mRenderState;
+    }
+
+    public void setBurnInDateHidden(boolean isBurnInDateHidden) {
+        mIsBurnInDateHidden = isBurnInDateHidden;
+    }
+
+    public void setWatchFaceCenter(float x, float y) {
+        mWatchFaceCenter.set(x, y);
+    }
+
+    /**
+     * @param hourPosition Hour hand position (see {@link HandGeometry})
+     * @param minutePosition Minute hand position (see {@link HandGeometry})
+     * @param secondHandPoints Second hand end points relative to the face center, {startX, startY, endX, endY}
+     */
+    public void setHandPositions(int hourPosition, int minutePosition, float[] secondHandPoints) {
+        mCurrentHourPosition = hourPosition;
+        mCurrentMinutePosition = minutePosition;
+        System.arraycopy(secondHandPoints, 0, mSecondHandPoints, 0, mSecondHandPoints.length);
+    }
+
+    /**
+     * Marks the static layer as out of date, so it is re-composited on the next draw cycle
+     */
+    public void invalidateStaticLayer() {
+        mIsStaticLayerValid = false;
+    }
+
+    /**
+     * @return The number of lit pixels in the most recent burn-in protection frame
+     */
+    public int getLastLitPixelCount() {
+        return mLastLitPixelCount;
+    }
+
+    public void draw(Canvas canvas) {
+        if(mRenderState == null) {
+            return;
+        }
+
+        if(mStaticLayerBitmap == null) {
+            drawStaticLayer(canvas);
+            drawHands(canvas);
+            return;
+        }
+
+        boolean isInteractive = mRenderState.isInteractive;
+        if(!isInteractive && (mLayerMinutePosition != mCurrentMinutePosition
+                || mLayerHourPosition != mCurrentHourPosition)) {
+            mIsStaticLayerValid = false;
+        }
+
+        if(!mIsStaticLayerValid) {
+            compositeStaticLayer();
+            mIsStaticLayerValid = true;
+        }
+
+        canvas.drawBitmap(mStaticLayerBitmap, 0, 0, null);
+        if(isInteractive) {
+            drawHands(canvas);
+        }
+    }
+
+    /**
+     * Draws the static layer, with the minute and hour hands outside interactive mode
+     */
+    private void compositeStaticLayer() {
+        drawStaticLayer(mStaticLayerCanvas);
+        if(!mRenderState.isInteractive) {
+            drawHands(mStaticLayerCanvas);
+            mLayerMinutePosition = mCurrentMinutePosition;
+            mLayerHourPosition = mCurrentHourPosition;
+        }
+
+        if(mRenderState.isBurnInProtectionActive) {
+            enforceBurnInPixelBudget();
+        }
+    }
+
+    /**
+     * Counts the lit pixels of the current frame. If they exceed the burn-in budget, the frame is composited again
+     * without the date text.
+     * <p/>
+     * The budget is best-effort: the time, the hands and the circle outline are always drawn, so a frame may still
+     * exceed it. The render regression harness checks that the face's frames stay within it.
+     */
+    private void enforceBurnInPixelBudget() {
+        mLastLitPixelCount = LitPixelCounter.count(mStaticLayerBitmap, mPixelRowBuffer, 0);
+        int maxLitPixelCount = (int)(mStaticLayerBitmap.getWidth() * mStaticLayerBitmap.getHeight()
+                * mMaxLitPixelRatio);
+
+        if(mLastLitPixelCount > maxLitPixelCount && !mIsBurnInDateHidden) {
+            mIsBurnInDateHidden = true;
+            drawStaticLayer(mStaticLayerCanvas);
+            drawHands(mStaticLayerCanvas);
+            mLastLitPixelCount = LitPixelCounter.count(mStaticLayerBitmap, mPixelRowBuffer, 0);
+        }
+    }
+
+    private void drawHands(Canvas canvas) {
+        // Draw the second hand in interactive mode only, because other modes don't
+        // update/redraw each second.
+        if(mRenderState.isInteractive) {
+            drawSecondHand(canvas);
+        }
+
+        drawMinuteHand(canvas);
+        drawHourHand(canvas);
+    }
+
+    /**
+     * Draws the background color, center circle and time/date text
+     */
+    private void drawStaticLayer(Canvas canvas) {
+        MuseumRenderState state = mRenderState;
+        int backgroundBitmapPositionX = -(int)mCircleDiameter / 2;
+        int backgroundBitmapPositionY = -(int)mCircleDiameter / 2;
+
+        canvas.save();
+        // To simplify drawing, we apply a translation to the canvas,
+        // so all render operations can be in reference to the center of the face
+        canvas.translate(mWatchFaceCenter.x, mWatchFaceCenter.y);
+        canvas.drawColor(state.backgroundColor);
+        if(state.isBurnInProtectionActive) {
+            canvas.drawCircle(0f, 0f, mCircleDiameter * 0.5f, state.circleOutlinePaint);
+        } else if(state.backgroundBitmap != null) {
+            canvas.drawBitmap(state.backgroundBitmap, backgroundBitmapPositionX, backgroundBitmapPositionY, state.backgroundBitmapPaint);
+        }
+        canvas.drawText(mTimeTextFormatter.getTimeText(), 0, mTimeTextFormatter.getTimeTextLength(),
+                backgroundBitmapPositionX + mTimeTextPositionInCircle.x, backgroundBitmapPositionY + mTimeTextPositionInCircle.y, state.timeTextPaint);
+        if(!state.isBurnInProtectionActive || !mIsBurnInDateHidden) {
+            canvas.drawText(mTimeTextFormatter.getDateText(), 0, mTimeTextFormatter.getDateTextLength(),
+                    backgroundBitmapPositionX + mDateTextPositionInCircle.x, backgroundBitmapPositionY + mDateTextPositionInCircle.y, state.dateTextPaint);
+        }
+        canvas.restore();
+    }
+
+    private void drawSecondHand(Canvas canvas) {
+        canvas.drawLine(mWatchFaceCenter.x + mSecondHandPoints[0], mWatchFaceCenter.y + mSecondHandPoints[1],
+                mWatchFaceCenter.x + mSecondHandPoints[2], mWatchFaceCenter.y + mSecondHandPoints[3],
+                mRenderState.secondHandPaint);
+    }
+
+    private void drawMinuteHand(Canvas canvas) {
+        canvas.drawCircle(mWatchFaceCenter.x + mHandGeometry.getMinuteDotX(mCurrentMinutePosition),
+                mWatchFaceCenter.y + mHandGeometry.getMinuteDotY(mCurrentMinutePosition),
+                mHandDotDiameter * 0.5f, mRenderState.minuteHandDotPaint);
+    }
+
+    private void drawHourHand(Canvas canvas) {
+        canvas.drawCircle(mWatchFaceCenter.x + mHandGeometry.getHourDotX(mCurrentHourPosition),
+                mWatchFaceCenter.y + mHandGeometry.getHourDotY(mCurrentHourPosition),
+                mHandDotDiameter * 0.5f, mRenderState.hourHandDotPaint);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.PointF;
+
+import com.ustwo.clockwise.sample.common.graphics.HandGeometry;
+import com.ustwo.clockwise.sample.common.util.TimeTextFormatter;
+
+/**
+ * The museum face's tick path: formats the time and date text, positions the hands and moves the face for burn-in
+ * protection, and passes the results to the {@link MuseumFaceRenderer}. It runs on every time change, so none of it
+ * allocates.
+ * <p/>
+ * The face calls it from onTimeChanged with the fields of the current WatchFaceTime. It has no other framework
+ * dependencies, so the benchmarks module runs it under allocation counting.
+ */
+public class MuseumFaceTicker {
+
+    private final TimeTextFormatter mTimeTextFormatter;
+    private final HandGeometry mHandGeometry;
+    private final MuseumFaceRenderer mRenderer;
+
+    /**
+     * Second hand end points relative to the face center, {startX, startY, endX, endY}
+     */
+    private final float[] mSecondHandPoints = new float[4];
+
+    /**
+     * Offset from the display center applied to the whole face in burn-in protection mode
+     */
+    private final PointF mBurnInOffset = new PointF(0f, 0f);
+
+    // Display center and maximum burn-in offset, scaled to the current device dimensions
+    private float mDisplayCenterX;
+    private float mDisplayCenterY;
+    private float mBurnInShift;
+
+    private boolean mIs24HourFormat = false;
+
+    // Time the time text was last formatted for
+    private int mTextHour = 0;
+    private int mTextMinute = 0;
+
+    public MuseumFaceTicker(TimeTextFormatter timeTextFormatter, HandGeometry handGeometry,
+            MuseumFaceRenderer renderer) {
+        mTimeTextFormatter = timeTextFormatter;
+        mHandGeometry = handGeometry;
+        mRenderer = renderer;
+    }
+
+    /**
+     * @param width Display width, in pixels
+     * @param height Display height, in pixels
+     * @param burnInShift Maximum burn-in offset, in pixels
+     */
+    public void setLayout(int width, int height, float burnInShift) {
+        mDisplayCenterX = width * 0.5f;
+        mDisplayCenterY = height * 0.5f;
+        mBurnInShift = burnInShift;
+        updateWatchFaceCenter();
+    }
+
+    /**
+     * Reformats the time text the time was last formatted for, if the 24-hour setting changed
+     */
+    public void set24HourFormat(boolean is24HourFormat) {
+        if(mIs24HourFormat != is24HourFormat) {
+            mIs24HourFormat = is24HourFormat;
+            mTimeTextFormatter.formatTime(mTextHour, mTextMinute, mIs24HourFormat);
+            mRenderer.invalidateStaticLayer();
+        }
+    }
+
+    /**
+     * Formats the time and date text and picks the burn-in offset for the minute. Called when the minute, hour, date
+     * or time zone changed.
+     * @param month The month, 0-11
+     */
+    public void updateDateAndTimeText(int month, int monthDay, int hour, int minute) {
+        mTimeTextFormatter.formatDate(month, monthDay);
+        mTextHour = hour;
+        mTextMinute = minute;
+        mTimeTextFormatter.formatTime(mTextHour, mTextMinute, mIs24HourFormat);
+
+        MuseumRenderStates.getBurnInOffset(minute, mBurnInShift, mBurnInOffset);
+        mRenderer.setBurnInDateHidden(false);
+        updateWatchFaceCenter();
+        mRenderer.invalidateStaticLayer();
+    }
+
+    /**
+     * Positions the hands, with the second hand ticking to the whole second
+     */
+    public void updateHandPositions(int hour, int minute, int second) {
+        mHandGeometry.getSecondHand(second % HandGeometry.MINUTE_POSITIONS, mSecondHandPoints);
+        mRenderer.setHandPositions(HandGeometry.getHourPosition(hour, minute), minute, mSecondHandPoints);
+    }
+
+    /**
+     * Positions the hands, with the second hand sweeping between whole seconds
+     * @param secondFraction Fraction of the current second elapsed, 0-1
+     */
+    public void updateHandPositions(int hour, int minute, int second, float secondFraction) {
+        mHandGeometry.computeSecondHand(second % HandGeometry.MINUTE_POSITIONS + secondFraction, mSecondHandPoints);
+        mRenderer.setHandPositions(HandGeometry.getHourPosition(hour, minute), minute, mSecondHandPoints);
+    }
+
+    /**
+     * Sets the center of the face to the display center, shifted by the burn-in offset if the renderer's current
+     * state has burn-in protection active. Called again whenever the render state changes.
+     */
+    public void updateWatchFaceCenter() {
+        float centerX = mDisplayCenterX;
+        float centerY = mDisplayCenterY;
+
+        MuseumRenderState renderState = mRenderer.getRenderState();
+        if(renderState != null && renderState.isBurnInProtectionActive) {
+            centerX += mBurnInOffset.x;
+            centerY += mBurnInOffset.y;
+        }
+        mRenderer.setWatchFaceCenter(centerX, centerY);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+
+/**
+ * Everything {@link MuseumFaceRenderer} needs to draw the face in one theme and watch mode: paints, background
+ * bitmap and background color.
+ * <p/>
+ * A render state is immutable: its paints are configured before it is created and must not be modified afterwards,
+ * and no two states share a paint which differs between them. States can therefore be prepared once (or on another
+ * thread), and switching modes only swaps the state the renderer uses.
+ */
+public class MuseumRenderState {
+
+    public final int backgroundColor;
+
+    /**
+     * The center circle bitmap drawn over the background color, or null for none
+     */
+    public final Bitmap backgroundBitmap;
+    public final Paint backgroundBitmapPaint;
+
+    public final Paint timeTextPaint;
+    public final Paint dateTextPaint;
+    public final Paint secondHandPaint;
+    public final Paint minuteHandDotPaint;
+    public final Paint hourHandDotPaint;
+
+    /**
+     * Paint used for the center circle outline, which is only drawn in burn-in protection mode
+     */
+    public final Paint circleOutlinePaint;
+
+    /**
+     * Whether the second hand is drawn, which is redrawn every frame over the static layer
+     */
+    public final boolean isInteractive;
+
+    /**
+     * Whether the center circle outline is drawn instead of the background bitmap, and the lit pixels are kept
+     * within the budget
+     */
+    public final boolean isBurnInProtectionActive;
+
+    public MuseumRenderState(int backgroundColor, Bitmap backgroundBitmap, Paint backgroundBitmapPaint,
+            Paint timeTextPaint, Paint dateTextPaint, Paint secondHandPaint, Paint minuteHandDotPaint,
+            Paint hourHandDotPaint, Paint circleOutlinePaint, boolean isInteractive,
+            boolean isBurnInProtectionActive) {
+        this.backgroundColor = backgroundColor;
+        this.backgroundBitmap = backgroundBitmap;
+        this.backgroundBitmapPaint = backgroundBitmapPaint;
+        this.timeTextPaint = timeTextPaint;
+        this.dateTextPaint = dateTextPaint;
+        this.secondHandPaint = secondHandPaint;
+        this.minuteHandDotPaint = minuteHandDotPaint;
+        this.hourHandDotPaint = hourHandDotPaint;
+        this.circleOutlinePaint = circleOutlinePaint;
+        this.isInteractive = isInteractive;
+        this.isBurnInProtectionActive = isBurnInProtectionActive;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.PointF;
+
+/**
+ * Creates the {@link MuseumRenderState} of each theme and watch mode from {@link MuseumSpec}, and computes the
+ * burn-in protection offset. Used by the face and by the render regression harness, so both draw the same states.
+ * <p/>
+ * The text paints passed in are templates holding the typeface, alignment and size; each state gets its own copy
+ * in the state's color. Set the text sizes and {@link #setStrokeWidths(float, float, float)} for the current layout
+ * before creating states.
+ */
+public class MuseumRenderStates {
+
+    /**
+     * Number of minutes the burn-in protection offset takes to go once around its circle
+     */
+    public static final int BURN_IN_OFFSET_PERIOD_MINUTES = 8;
+
+    private final Paint mTimeTextPaint;
+    private final Paint mDateTextPaint;
+
+    /**
+     * Paint used for the full color background bitmaps
+     */
+    private final Paint mBitmapPaint = new Paint();
+
+    /**
+     * Paint used for the low-bit alpha mask bitmap. It has no anti-aliasing, filtering or dithering, and its color is
+     * the color the mask is drawn in.
+     */
+    private final Paint mLowBitBitmapPaint = new Paint();
+
+    private float mSecondHandStroke;
+    private float mMinuteHandDotStroke;
+    private float mBurnInOutlineStroke;
+
+    /**
+     * @param timeTextPaint Template for the time text paints
+     * @param dateTextPaint Template for the date text paints
+     */
+    public MuseumRenderStates(Paint timeTextPaint, Paint dateTextPaint) {
+        mTimeTextPaint = timeTextPaint;
+        mDateTextPaint = dateTextPaint;
+
+        mBitmapPaint.setAntiAlias(true);
+        mBitmapPaint.setFilterBitmap(true);
+        mBitmapPaint.setDither(true);
+
+        mLowBitBitmapPaint.setColor(MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND);
+    }
+
+    /**
+     * Sets the stroke widths, scaled to the current layout, of the states created from now on
+     */
+    public void setStrokeWidths(float secondHandStroke, float minuteHandDotStroke, float burnInOutlineStroke) {
+        mSecondHandStroke = secondHandStroke;
+        mMinuteHandDotStroke = minuteHandDotStroke;
+        mBurnInOutlineStroke = burnInOutlineStroke;
+    }
+
+    /**
+     * Creates the interactive-mode paints and background
+     * @param backgroundBitmap The center circle background of the theme, or null to draw only the background color
+     *                         until it is loaded
+     */
+    public MuseumRenderState createInteractiveState(boolean isLightTheme, Bitmap backgroundBitmap) {
+        if(isLightTheme) {
+            return new MuseumRenderState(MuseumSpec.SPEC_COLOR_LIGHT_BACKGROUND, backgroundBitmap, mBitmapPaint,
+                    createTextPaint(mTimeTextPaint, MuseumSpec.SPEC_COLOR_LIGHT_TIME_TEXT),
+                    createTextPaint(mDateTextPaint, MuseumSpec.SPEC_COLOR_LIGHT_DATE_TEXT),
+                    createSecondHandPaint(MuseumSpec.SPEC_COLOR_LIGHT_SECONDS, true),
+                    createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_LIGHT_MINUTES, true),
+                    createHandDotPaint(Paint.Style.FILL, MuseumSpec.SPEC_COLOR_LIGHT_HOURS, true),
+                    createCircleOutlinePaint(true), true, false);
+        }
+        else {
+            return new MuseumRenderState(MuseumSpec.SPEC_COLOR_DARK_BACKGROUND, backgroundBitmap, mBitmapPaint,
+                    createTextPaint(mTimeTextPaint, MuseumSpec.SPEC_COLOR_DARK_TIME_TEXT),
+                    createTextPaint(mDateTextPaint, MuseumSpec.SPEC_COLOR_DARK_DATE_TEXT),
+                    createSecondHandPaint(MuseumSpec.SPEC_COLOR_DARK_SECONDS, true),
+                    createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_DARK_MINUTES, true),
+                    createHandDotPaint(Paint.Style.FILL, MuseumSpec.SPEC_COLOR_DARK_HOURS, true),
+                    createCircleOutlinePaint(true), true, false);
+        }
+    }
+
+    /**
+     * Creates the low-bit ambient mode paints and background. Low-bit displays can only show fully on or off pixels,
+     * so nothing is anti-aliased.
+     * @param lowBitBackground The one bit center circle background, stored as an alpha mask, or null to draw only the
+     *                         background color until it is loaded
+     */
+    public MuseumRenderState createLowBitState(Bitmap lowBitBackground) {
+        return new MuseumRenderState(MuseumSpec.SPEC_COLOR_LOWBIT_BACKGROUND, lowBitBackground, mLowBitBitmapPaint,
+                createTextPaint(mTimeTextPaint, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND),
+                createTextPaint(mDateTextPaint, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND),
+                createSecondHandPaint(MuseumSpec.SPEC_COLOR_DARK_SECONDS, false),
+                createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND, false),
+                createHandDotPaint(Paint.Style.FILL, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND, false),
+                createCircleOutlinePaint(false), false, false);
+    }
+
+    /**
+     * Creates the burn-in protection paints. Instead of the filled background bitmap, only the outline of the
+     * center circle and of the hand dots are drawn, and the face is shifted around the display center every minute.
+     * @param isAntiAlias Whether the display supports anti-aliasing (i.e. it is not low-bit)
+     */
+    public MuseumRenderState createBurnInState(boolean isAntiAlias) {
+        return new MuseumRenderState(MuseumSpec.SPEC_COLOR_LOWBIT_BACKGROUND, null, mBitmapPaint,
+                createTextPaint(mTimeTextPaint, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND),
+                createTextPaint(mDateTextPaint, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND),
+                createSecondHandPaint(MuseumSpec.SPEC_COLOR_DARK_SECONDS, isAntiAlias),
+                createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND, isAntiAlias),
+                createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND, isAntiAlias),
+                createCircleOutlinePaint(isAntiAlias), false, true);
+    }
+
+    /**
+     * Creates the ambient-mode (non-low bit) paints and background.
+     * This mode is similar to the dark interactive mode, but doesn't show the second hand.
+     * @param darkBackground The center circle background of the dark theme, or null to draw only the background color
+     *                       until it is loaded
+     */
+    public MuseumRenderState createAmbientState(Bitmap darkBackground) {
+        return new MuseumRenderState(MuseumSpec.SPEC_COLOR_DARK_BACKGROUND, darkBackground, mBitmapPaint,
+                createTextPaint(mTimeTextPaint, MuseumSpec.SPEC_COLOR_DARK_TIME_TEXT),
+                createTextPaint(mDateTextPaint, MuseumSpec.SPEC_COLOR_DARK_DATE_TEXT),
+                createSecondHandPaint(MuseumSpec.SPEC_COLOR_DARK_SECONDS, true),
+                createHandDotPaint(Paint.Style.STROKE, MuseumSpec.SPEC_COLOR_DARK_MINUTES, true),
+                createHandDotPaint(Paint.Style.FILL, MuseumSpec.SPEC_COLOR_DARK_HOURS, true),
+                createCircleOutlinePaint(true), false, false);
+    }
+
+    /**
+     * Computes the burn-in protection offset for the given minute. The face moves around a circle of radius
+     * {@code shift} over {@link #BURN_IN_OFFSET_PERIOD_MINUTES} minutes, so no pixel stays lit for long.
+     * @param minute The minute of the hour
+     * @param shift The maximum offset, in pixels
+     * @param output Set to the offset from the display center, in whole pixels
+     */
+    public static void getBurnInOffset(int minute, float shift, PointF output) {
+        double angle = (minute % BURN_IN_OFFSET_PERIOD_MINUTES) * (2.0 * Math.PI / BURN_IN_OFFSET_PERIOD_MINUTES);
+        output.set(Math.round(Math.sin(angle) * shift), Math.round(-Math.cos(angle) * shift));
+    }
+
+    private Paint createTextPaint(Paint template, int color) {
+        Paint paint = new Paint(template);
+        paint.setColor(color);
+        return paint;
+    }
+
+    private Paint createSecondHandPaint(int color, boolean isAntiAlias) {
+        Paint paint = new Paint();
+        paint.setAntiAlias(isAntiAlias);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(mSecondHandStroke);
+        paint.setColor(color);
+        return paint;
+    }
+
+    /**
+     * @param style {@link Paint.Style#STROKE} for the minute hand dot, and for the hour hand dot in burn-in
+     *              protection mode
+     */
+    private Paint createHandDotPaint(Paint.Style style, int color, boolean isAntiAlias) {
+        Paint paint = new Paint();
+        paint.setAntiAlias(isAntiAlias);
+        paint.setStyle(style);
+        paint.setStrokeWidth(mMinuteHandDotStroke);
+        paint.setColor(color);
+        return paint;
+    }
+
+    private Paint createCircleOutlinePaint(boolean isAntiAlias) {
+        Paint paint = new Paint();
+        paint.setAntiAlias(isAntiAlias);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(mBurnInOutlineStroke);
+        paint.setColor(MuseumSpec.SPEC_COLOR_LOWBIT_FOREGROUND);
+        return paint;
+    }
+}
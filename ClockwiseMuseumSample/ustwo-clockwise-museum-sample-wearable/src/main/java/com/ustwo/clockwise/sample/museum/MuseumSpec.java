@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 ustwo studio inc (www.ustwo.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ustwo.clockwise.sample.museum;
+
+import android.graphics.PointF;
+
+/**
+ * Container class for design specifications of the museum face. Dimensions are for a display of {@link #SPEC_SIZE}
+ * pixels and are scaled with {@link com.ustwo.clockwise.sample.common.graphics.SpecScaler}.
+ */
+public final class MuseumSpec {
+    /**
+     * The design display size, in reference to which specs are created
+     */
+    public static final float SPEC_SIZE = 320.0f;
+
+    /**
+     * The diameter of the center circle
+     */
+    public static final float SPEC_mCircleDiameter = 200.0f;
+
+    // Hand specs
+    /**
+     * Distance from the center of the hands to the display center (radius at which hands travel)
+     */
+    public static final float SPEC_mHandDotDistanceFromCenter = 130.0f;
+
+    /**
+     * Diameter of the hand circles
+     */
+    public static final float SPEC_mHandDotDiameter = 20.0f;
+
+    /**
+     * Stroke thickness of the minute hand dot
+     */
+    public static final float SPEC_mMinuteHandDotStroke = 2.0f;
+
+    /**
+     * Stroke thickness of the minute hand
+     */
+    public static final float SPEC_mSecondHandStroke = 2.0f;
+
+    // Center circle elements specs
+    /**
+     * Position of the time text, in relation to the top-left corner of the inner circle
+     */
+    public static final PointF SPEC_mTimeTextPositionInCircle = new PointF(100f, 64f);
+
+    /**
+     * Position of the date text, in relation to the top-left corner of the inner circle
+     */
+    public static final PointF SPEC_mDateTextPositionInCircle = new PointF(100f, 140f);
+
+    /**
+     * Font size of the time text
+     */
+    public static final float SPEC_mTimeTextSize = 36.0f;
+
+    /**
+     * Font size of the date text
+     */
+    public static final float SPEC_mDateTextSize = 18.0f;
+
+    // Burn-in protection specs
+    /**
+     * Maximum distance by which the face is shifted away from the display center in burn-in protection mode
+     */
+    public static final float SPEC_mBurnInShift = 4.0f;
+
+    /**
+     * Stroke thickness of the center circle outline in burn-in protection mode
+     */
+    public static final float SPEC_mBurnInOutlineStroke = 2.0f;
+
+    /**
+     * Maximum fraction of display pixels which may be lit in burn-in protection mode. The date is hidden to stay
+     * within it; beyond that it is not enforced (see MuseumFaceRenderer).
+     */
+    public static final float SPEC_BURN_IN_MAX_LIT_PIXEL_RATIO = 0.05f;
+
+    public static final int SPEC_COLOR_DARK_MINUTES = 0xFFFFFFFF;
+    public static final int SPEC_COLOR_DARK_HOURS = 0xFFFFFFFF;
+    public static final int SPEC_COLOR_DARK_SECONDS = 0xFFe51c23;
+    public static final int SPEC_COLOR_DARK_BACKGROUND = 0xFF212121;
+    public static final int SPEC_COLOR_DARK_TIME_TEXT = 0xFFFFFFFF;
+    public static final int SPEC_COLOR_DARK_DATE_TEXT = 0x42FFFFFF;  // 26% alpha
+
+    public static final int SPEC_COLOR_LIGHT_MINUTES = 0xFF212121;
+    public static final int SPEC_COLOR_LIGHT_HOURS = 0xFF212121;
+    public static final int SPEC_COLOR_LIGHT_SECONDS = 0xFFe51c23;
+    public static final int SPEC_COLOR_LIGHT_BACKGROUND = 0xFFfafafa;
+    public static final int SPEC_COLOR_LIGHT_TIME_TEXT = 0xFF212121;
+    public static final int SPEC_COLOR_LIGHT_DATE_TEXT = 0x8A000000;  // 54% alpha
+
+    public static final int SPEC_COLOR_LOWBIT_BACKGROUND = 0xFF000000;
+    public static final int SPEC_COLOR_LOWBIT_FOREGROUND = 0xFFFFFFFF;
+
+    private MuseumSpec() {
+    }
+}